@@ -0,0 +1,56 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CarPricePrediction fitness evaluation of a single candidate, and of a
+ * batch of candidates in one call, at several dataset sizes and in double
+ * and single precision.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FitnessBenchmark {
+
+    @Param({"122", "10000", "100000"})
+    public int rows;
+
+    @Param({"32"})
+    public int batch;
+
+    @Param({"DOUBLE", "SINGLE"})
+    public CarPricePrediction.Precision precision;
+
+    private Problem problem;
+    private double[] candidate;
+    private double[][] candidates;
+    private double[] results;
+
+    @Setup
+    public void setUp() {
+        problem = SyntheticData.carPriceProblem(rows, precision);
+        candidate = problem.generate();
+        candidates = new double[batch][];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = problem.generate();
+        }
+        results = new double[candidates.length];
+    }
+
+    @Benchmark
+    public double evaluate() {
+        return problem.evaluate(candidate);
+    }
+
+    /** One call scoring all batch candidates. */
+    @Benchmark
+    public double evaluateBatch() {
+        problem.evaluateBatch(candidates, results);
+        return results[0];
+    }
+}
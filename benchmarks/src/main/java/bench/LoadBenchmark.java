@@ -0,0 +1,64 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dataset loading from CSV and from the binary cache, at several sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private Path directory;
+    private Path csv;
+    private Path cache;
+
+    @Setup
+    public void setUp() throws IOException {
+        Dataset dataset = SyntheticData.carPrices(rows);
+        directory = Files.createTempDirectory("load-benchmark");
+        csv = directory.resolve("data.csv");
+        cache = directory.resolve("data.bin");
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            for (int r = 0; r < dataset.rows(); r++) {
+                for (int j = 0; j < dataset.inputs(); j++) {
+                    writer.write(Double.toString(dataset.features()[j * dataset.rows() + r]));
+                    writer.write(',');
+                }
+                writer.write(Double.toString(dataset.targets()[r]));
+                writer.newLine();
+            }
+        }
+        dataset.writeCache(cache);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(cache);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public double readCsv() throws IOException {
+        return Dataset.readCsv(csv).targets()[0];
+    }
+
+    @Benchmark
+    public double readCache() throws IOException {
+        return Dataset.readCache(cache).targets()[0];
+    }
+}
@@ -0,0 +1,91 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NovelPSO's selection steps over random fitness values: the survivor
+ * selection of the population fittest of matingPoolScale * population
+ * offspring, and the population * matingPoolScale tournaments of the mating
+ * pool, with the partial selection and index-based tournaments of Selection
+ * against the former full sort and list-based tournaments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelectionBenchmark {
+
+    private static final int MATING_POOL_SCALE = PSOData.DEFAULT_MATING_POOL_SCALE;
+    private static final int K = PSOData.DEFAULT_K;
+
+    @Param({"1000", "10000", "100000"})
+    public int population;
+
+    private final Random random = new Random(42);
+    private double[] fitness;
+    private int[] indices;
+    private List<Integer> offspring;
+
+    @Setup
+    public void setUp() {
+        int size = population * MATING_POOL_SCALE;
+        fitness = new double[size];
+        indices = new int[size];
+        offspring = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            fitness[i] = random.nextDouble();
+            offspring.add(i);
+        }
+    }
+
+    @Benchmark
+    public double sortFittest() {
+        List<Integer> sorted = new ArrayList<>(offspring);
+        Collections.sort(sorted, Comparator.comparingDouble(i -> fitness[i]));
+        return sorted.subList(0, population).get(0);
+    }
+
+    @Benchmark
+    public double selectFittest() {
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        Selection.selectFittest(fitness, indices, indices.length, population);
+        return indices[0];
+    }
+
+    @Benchmark
+    public double listTournaments() {
+        int sum = 0;
+        for (int i = 0; i < population * MATING_POOL_SCALE; i++) {
+            List<Integer> tournament = new ArrayList<>(K);
+            for (int j = 0; j < K; j++) {
+                tournament.add(random.nextInt(population));
+            }
+            int winner = tournament.get(0);
+            for (int candidate : tournament) {
+                if (fitness[candidate] < fitness[winner]) winner = candidate;
+            }
+            sum += winner;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double indexTournaments() {
+        int sum = 0;
+        for (int i = 0; i < population * MATING_POOL_SCALE; i++) {
+            sum += Selection.tournament(fitness, population, K, random);
+        }
+        return sum;
+    }
+}
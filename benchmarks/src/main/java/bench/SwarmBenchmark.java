@@ -0,0 +1,60 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One BasePSO iteration (update and evaluate) on each swarm backend, and one
+ * NovelPSO generation (selection, crossover, mutation and the final sort),
+ * for CarPricePrediction at several dataset and population sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SwarmBenchmark {
+
+    @Param({"122", "10000"})
+    public int rows;
+
+    @Param({"27", "1000"})
+    public int population;
+
+    private BasePSO.Swarm list;
+    private BasePSO.Swarm flat;
+    private NovelPSO.EvolvingParticleSwarm novel;
+
+    @Setup
+    public void setUp() {
+        BasePSO solver = new BasePSO(SyntheticData.carPriceProblem(rows));
+        solver.setPopulationSize(population);
+        list = solver.new ParticleSwarm();
+        flat = solver.new FlatParticleSwarm();
+        NovelPSO novelSolver = new NovelPSO(SyntheticData.carPriceProblem(rows));
+        novelSolver.setPopulationSize(population);
+        novel = novelSolver.new EvolvingParticleSwarm();
+    }
+
+    @Benchmark
+    public double listIteration() {
+        list.updatePopulation();
+        list.evaluatePopulation();
+        return list.getGBestFitness();
+    }
+
+    @Benchmark
+    public double flatIteration() {
+        flat.updatePopulation();
+        flat.evaluatePopulation();
+        return flat.getGBestFitness();
+    }
+
+    @Benchmark
+    public double novelGeneration() {
+        novel.evolvePopulation();
+        return novel.population.size();
+    }
+}
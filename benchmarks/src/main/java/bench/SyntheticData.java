@@ -0,0 +1,38 @@
+package bench;
+
+import java.util.Random;
+
+/**
+ * Reproducible synthetic datasets of any size for the benchmarks, shaped like
+ * the car price data: standardised inputs and a noisy target.
+ */
+final class SyntheticData {
+
+    private SyntheticData() {
+    }
+
+    static Dataset carPrices(int rows) {
+        Random random = new Random(42);
+        int inputs = CarPricePrediction.N_INPUTS;
+        double[] features = new double[rows * inputs];
+        double[] targets = new double[rows];
+        for (int r = 0; r < rows; r++) {
+            double target = 9.0;
+            for (int j = 0; j < inputs; j++) {
+                double value = random.nextGaussian();
+                features[j * rows + r] = value;
+                target += 0.1 * value * ((j % 3) - 1);
+            }
+            targets[r] = target + 0.05 * random.nextGaussian();
+        }
+        return new Dataset(rows, inputs, features, targets);
+    }
+
+    static CarPricePrediction carPriceProblem(int rows) {
+        return new CarPricePrediction(carPrices(rows));
+    }
+
+    static CarPricePrediction carPriceProblem(int rows, CarPricePrediction.Precision precision) {
+        return new CarPricePrediction(carPrices(rows), precision);
+    }
+}
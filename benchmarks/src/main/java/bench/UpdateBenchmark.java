@@ -0,0 +1,95 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The velocity and position update of a whole swarm, without evaluation, on
+ * each swarm backend at several problem dimensions and population sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateBenchmark {
+
+    @Param({"47", "512"})
+    public int dimensions;
+
+    @Param({"27", "1000"})
+    public int population;
+
+    private BasePSO.Swarm list;
+    private BasePSO.Swarm flat;
+
+    @Setup
+    public void setUp() {
+        BasePSO solver = new BasePSO(new Sphere(dimensions));
+        solver.setPopulationSize(population);
+        list = solver.new ParticleSwarm();
+        flat = solver.new FlatParticleSwarm();
+    }
+
+    @Benchmark
+    public double listUpdate() {
+        list.updatePopulation();
+        return list.getGBest()[0];
+    }
+
+    @Benchmark
+    public double flatUpdate() {
+        flat.updatePopulation();
+        return flat.getGBest()[0];
+    }
+
+    private static class Sphere implements Problem {
+        private final int dimensions;
+
+        Sphere(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        public double[][] bounds() {
+            double[][] bounds = new double[dimensions][];
+            for (int i = 0; i < dimensions; i++) {
+                bounds[i] = new double[] {-10.0, 10.0};
+            }
+            return bounds;
+        }
+
+        @Override
+        public boolean validates(double[] params) {
+            for (double param : params) {
+                if (param < -10.0 || param > 10.0) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public double evaluate(double[] params) {
+            double sum = 0.0;
+            for (double param : params) {
+                sum += param * param;
+            }
+            return sum;
+        }
+
+        @Override
+        public double[] generate() {
+            double[] candidate = new double[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                candidate[i] = PSOData.RANDOM.nextDouble(-10.0, 10.0);
+            }
+            return candidate;
+        }
+
+        @Override
+        public int dimensions() {
+            return dimensions;
+        }
+    }
+}
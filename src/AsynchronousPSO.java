@@ -0,0 +1,276 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Asynchronous steady-state PSO. There is no generation barrier: each
+ * particle moves and is evaluated again as soon as its previous evaluation
+ * completes, steering by whichever gBest is current at that moment. gBest is
+ * an immutable snapshot which is replaced by compare-and-set, so it is read
+ * and improved concurrently without locking, and cores stay busy even when
+ * evaluation times vary.
+ *
+ * A run makes the same number of particle moves as BasePSO, runTime per
+ * particle on average, on the evaluation executor (or on one thread per core
+ * when none is set). Every population-size moves count as one iteration:
+ * gBest is recorded and the stopping criteria are checked. Mini-batch and
+ * surrogate screening, migration and StreamingProblems are not supported by
+ * this solver, and are rejected when set or on construction. Each particle draws from its own random stream, but the order
+ * of moves depends on thread timing, so runs are not reproducible even with
+ * a seed.
+ *
+ * A checkpoint is taken at the end of an iteration by letting each particle
+ * finish the move it is making and holding back its next one until all have
+ * stopped. Moves made after the iteration ended but before every particle
+ * stopped, at most one per particle, count towards the following iteration
+ * of a resumed run, which therefore makes up to that many extra moves.
+ */
+public class AsynchronousPSO extends BasePSO {
+
+    /**
+     * @param problem the problem, which must not be a StreamingProblem
+     */
+    public AsynchronousPSO(Problem problem) {
+        super(problem);
+        if (problem instanceof StreamingProblem) {
+            throw new IllegalArgumentException("AsynchronousPSO does not support a StreamingProblem, " +
+                    "whose changes are applied between iterations.");
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException unless miniBatch is null
+     */
+    @Override
+    public void setMiniBatch(MiniBatch miniBatch) {
+        if (miniBatch != null) {
+            throw new IllegalArgumentException("AsynchronousPSO::setMiniBatch argument must be null; " +
+                    "mini-batch screening is not supported.");
+        }
+        super.setMiniBatch(null);
+    }
+
+    /**
+     * @throws IllegalArgumentException unless surrogate is null
+     */
+    @Override
+    public void setSurrogate(Surrogate surrogate) {
+        if (surrogate != null) {
+            throw new IllegalArgumentException("AsynchronousPSO::setSurrogate argument must be null; " +
+                    "surrogate screening is not supported.");
+        }
+        super.setSurrogate(null);
+    }
+
+    /**
+     * @throws IllegalArgumentException unless migration is null
+     */
+    @Override
+    public void setMigration(Migration migration) {
+        if (migration != null) {
+            throw new IllegalArgumentException("AsynchronousPSO::setMigration argument must be null; " +
+                    "migration is not supported.");
+        }
+        super.setMigration(null);
+    }
+
+    @Override
+    public void solve() {
+        solve(null);
+    }
+
+    /**
+     * As BasePSO::resume, from a checkpoint written by an AsynchronousPSO or
+     * a BasePSO on the same problem.
+     */
+    @Override
+    public void resume(Path checkpoint) throws IOException {
+        solve(Checkpoint.read(checkpoint));
+    }
+
+    private void solve(Checkpoint resumed) {
+        ExecutorService executor = getEvaluationExecutor();
+        boolean ownExecutor = executor == null;
+        if (ownExecutor) {
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+        if (resumed == null) startRun();
+        else startRun(resumed);
+        try {
+            Run run = new Run(executor, resumed);
+            run.await();
+            Best best = run.gBest.get();
+            setBest(best.position.clone());
+            bestFitness = best.fitness;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("AsynchronousPSO::solve was interrupted.", e);
+        } finally {
+            if (ownExecutor) executor.shutdown();
+        }
+    }
+
+    /**
+     * A global best position and its fitness. Never modified once published.
+     */
+    private static final class Best {
+        private final double[] position;
+        private final double fitness;
+
+        private Best(double[] position, double fitness) {
+            this.position = position.clone();
+            this.fitness = fitness;
+        }
+    }
+
+    private class Run {
+        private final ExecutorService executor;
+        private final List<Particle> population = new ArrayList<>();
+        private final AtomicReference<Best> gBest;
+        private final AtomicLong remainingMoves;
+        private final AtomicLong completedMoves = new AtomicLong();
+        private final CountDownLatch finished;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        // set at the end of an iteration when a checkpoint is due; particles then stop
+        // until every one has, which the state below, guarded by this Run, tracks
+        private volatile boolean pausing;
+        private final List<Particle> paused = new ArrayList<>();
+        private int retired;
+
+        private Run(ExecutorService executor, Checkpoint resumed) {
+            this.executor = executor;
+            int size;
+            if (resumed == null) {
+                size = populationSize();
+                for (int i = 0; i < size; i++) {
+                    population.add(new Particle(problem.generate(random()), problem.generate(random())));
+                }
+                double[] initial = problem.generate(random());
+                gBest = new AtomicReference<>(new Best(initial, evaluate(initial)));
+                remainingMoves = new AtomicLong((long) runTime * size);
+            } else {
+                // each particle its own, as moves of one particle must not overlap
+                size = resumed.size;
+                int dimensions = resumed.dimensions;
+                for (int p = 0; p < size; p++) {
+                    int from = p * dimensions;
+                    int to = from + dimensions;
+                    population.add(new Particle(Arrays.copyOfRange(resumed.positions, from, to),
+                            Arrays.copyOfRange(resumed.pBests, from, to),
+                            Arrays.copyOfRange(resumed.velocities, from, to), resumed.pBestFitness[p]));
+                }
+                gBest = new AtomicReference<>(new Best(resumed.gBest, resumed.gBestFitness));
+                remainingMoves = new AtomicLong(Math.max(0L, (long) (runTime - resumed.iterations) * size));
+                completedMoves.set((long) resumed.iterations * size);
+            }
+            finished = new CountDownLatch(size);
+            for (Particle particle : population) {
+                executor.execute(() -> move(particle));
+            }
+        }
+
+        private void await() throws InterruptedException {
+            finished.await();
+            Throwable cause = failure.get();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause != null) throw new IllegalStateException("AsynchronousPSO::solve failed.", cause);
+        }
+
+        // one move of one particle, which then schedules its next move
+        private void move(Particle particle) {
+            if (pausing && pause(particle)) return;
+            if (failure.get() != null || remainingMoves.getAndDecrement() <= 0) {
+                retire();
+                return;
+            }
+            try {
+                particle.updateVelocity(gBest.get().position);
+                particle.updatePosition();
+                double[] position = particle.getPosition();
+                // "invisible wall" -- invalid positions are not evaluated
+                if (problem.validates(position)) {
+                    double fitness = evaluate(position);
+                    if (fitness < particle.getPBestFitness()) {
+                        particle.setPBest(position, fitness);
+                    }
+                    offer(position, fitness);
+                }
+                if (completedMoves.incrementAndGet() % population.size() == 0) {
+                    synchronized (AsynchronousPSO.this) {
+                        Best best = gBest.get();
+                        record(best.fitness);
+                        if (shouldStop(best.fitness)) remainingMoves.set(0);
+                        else if (checkpointDue()) pausing = true;
+                        publish(best.position, best.fitness);
+                    }
+                }
+                executor.execute(() -> move(particle));
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+                retire();
+            }
+        }
+
+        // holds back the particle's next move while a checkpoint is pending, returning
+        // false if there is none after all
+        private synchronized boolean pause(Particle particle) {
+            if (!pausing) return false;
+            paused.add(particle);
+            checkpointIfStopped();
+            return true;
+        }
+
+        // a particle which has made its last move
+        private synchronized void retire() {
+            retired++;
+            finished.countDown();
+            checkpointIfStopped();
+        }
+
+        // once no particle is moving, writes the pending checkpoint and lets the paused
+        // particles continue
+        private void checkpointIfStopped() {
+            if (!pausing || paused.size() + retired < population.size()) return;
+            pausing = false;
+            try {
+                synchronized (AsynchronousPSO.this) {
+                    Best best = gBest.get();
+                    Checkpoint state = checkpointState(population.size(), best.position, best.fitness);
+                    int dimensions = state.dimensions;
+                    for (int p = 0; p < population.size(); p++) {
+                        Particle particle = population.get(p);
+                        particle.splitStream();
+                        System.arraycopy(particle.getPosition(), 0, state.positions, p * dimensions, dimensions);
+                        System.arraycopy(particle.getVelocity(), 0, state.velocities, p * dimensions, dimensions);
+                        System.arraycopy(particle.getPBest(), 0, state.pBests, p * dimensions, dimensions);
+                        state.pBestFitness[p] = particle.getPBestFitness();
+                        state.aliases[p] = p;
+                    }
+                    writeCheckpoint(state);
+                }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+            for (Particle particle : paused) {
+                executor.execute(() -> move(particle));
+            }
+            paused.clear();
+        }
+
+        private void offer(double[] position, double fitness) {
+            Best current = gBest.get();
+            if (fitness >= current.fitness) return;
+            Best candidate = new Best(position, fitness);
+            while (fitness < current.fitness && !gBest.compareAndSet(current, candidate)) {
+                current = gBest.get();
+            }
+        }
+    }
+}
@@ -1,14 +1,73 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
 
 public class BasePSO {
 
     protected Problem problem;
     private double[] bestSolution;
+    protected double bestFitness = Double.NaN;
     private double socialCoeff = PSOData.DEFAULT_SOCIAL_COEFF;
     private double cognitiveCoeff = PSOData.DEFAULT_COGNITIVE_COEFF;
     protected int runTime = PSOData.DEFAULT_FUNCTION_EVALUATIONS;
-    private List<String> history = new ArrayList<>();
+    private final SolverMetrics metrics = new SolverMetrics();
+    private ExecutorService evaluationExecutor;
+    private boolean flatStorage = false;
+    private int populationSize = 0;
+    private MiniBatch miniBatch;
+    private Surrogate surrogate;
+    private Boundary boundary = Boundary.INVISIBLE_WALL;
+    private double velocityClamp = 0.0;
+    private Bounds limits;
+    private Migration migration;
+    private long rejectedMigrants;
+    private RandomGeneratorFactory<RandomGenerator.SplittableGenerator> randomFactory =
+            RandomGeneratorFactory.of("SplittableRandom");
+    private boolean seeded;
+    private long seed;
+    private long runSeed;
+    // the run's random stream, from which each particle's own stream is split
+    private RandomGenerator.SplittableGenerator random = new SplittableRandom();
+    private final AtomicLong evaluations = new AtomicLong();
+    private long evaluationBudget = Long.MAX_VALUE;
+    private long timeLimitNanos = Long.MAX_VALUE;
+    private double targetFitness = Double.NEGATIVE_INFINITY;
+    private int stagnationWindow = 0;
+    private double minImprovement = 0.0;
+    private ValidationMonitor validationMonitor;
+    private volatile boolean stopRequested;
+    private static final AtomicLong RUN_IDS = new AtomicLong();
+    // progress of the current run, for the stopping criteria
+    private long run;
+    private long startNanos;
+    private long startEvaluations;
+    private int iterations;
+    private double stagnationBest;
+    private int stagnantIterations;
+    private StopReason stopReason;
+    private Path checkpointFile;
+    private long checkpointIntervalNanos;
+    private long lastCheckpointNanos;
+    // the checkpoint a swarm under construction restores, instead of initialising
+    private Checkpoint resuming;
+    // scratch space for evaluateAll, reused between iterations
+    private double[][] batch = new double[0][];
+    private double[] batchResults = new double[0];
+    private int[] batchIndex = new int[0];
 
     public BasePSO(Problem p) {
         problem = p;
@@ -38,6 +97,334 @@ public class BasePSO {
         this.runTime = runTime;
     }
 
+    /**
+     * Stop once the run has made this many calls to Problem::evaluate. The
+     * budget is checked after each iteration, so a run may overshoot it by
+     * less than one iteration's evaluations. runTime still bounds the number
+     * of iterations.
+     *
+     * @param budget the maximum number of fitness evaluations
+     */
+    public void setEvaluationBudget(long budget) {
+        if (budget < 1) {
+            throw new IllegalArgumentException("BasePSO::setEvaluationBudget argument must be > 0; " +
+                    "it was " + budget);
+        }
+        evaluationBudget = budget;
+    }
+
+    /**
+     * Stop once the run has taken this long, checked after each iteration.
+     *
+     * @param limit the maximum wall-clock duration of a run
+     */
+    public void setTimeLimit(Duration limit) {
+        if (limit.isNegative() || limit.isZero()) {
+            throw new IllegalArgumentException("BasePSO::setTimeLimit argument must be positive; " +
+                    "it was " + limit);
+        }
+        timeLimitNanos = limit.toNanos();
+    }
+
+    /**
+     * Stop as soon as gBest's fitness is at or below the target.
+     *
+     * @param target the fitness which is good enough
+     */
+    public void setTargetFitness(double target) {
+        targetFitness = target;
+    }
+
+    /**
+     * Stop when gBest's fitness has not improved by more than minImprovement
+     * over window consecutive iterations.
+     *
+     * @param window the number of iterations without improvement to allow
+     * @param minImprovement the smallest decrease in fitness which counts as improvement
+     */
+    public void setStagnationWindow(int window, double minImprovement) {
+        if (window < 1 || minImprovement < 0) {
+            throw new IllegalArgumentException("BasePSO::setStagnationWindow arguments must be > 0 " +
+                    "and non-negative; they were " + window + " and " + minImprovement);
+        }
+        stagnationWindow = window;
+        this.minImprovement = minImprovement;
+    }
+
+    /**
+     * Score gBest on a held-out problem in the background as the run
+     * progresses, and stop once the monitor signals that validation fitness
+     * has stopped improving. The monitor is reset at the start of each run;
+     * its best solution is available from it afterwards. Passing null
+     * detaches the current monitor.
+     *
+     * @param monitor the monitor, or null
+     */
+    public void setValidationMonitor(ValidationMonitor monitor) {
+        if (validationMonitor != null) metrics.removeListener(validationMonitor);
+        validationMonitor = monitor;
+        if (monitor != null) metrics.addListener(monitor);
+    }
+
+    /**
+     * Stop the current run at the end of its iteration, or the next run at
+     * the end of its first if none is in progress. Safe to call from any
+     * thread.
+     */
+    public void requestStop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Seed every run of this solver with the same value, so that runs are
+     * reproducible. Each run's random stream is created from its seed, and
+     * split into an independent stream per particle, so particles draw
+     * numbers without contending for a shared generator. Runs on an
+     * AsynchronousPSO, or with a mini-batch or surrogate carried over from
+     * an earlier run, are not reproducible.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        seeded = true;
+    }
+
+    /**
+     * Draw random numbers from a splittable algorithm of
+     * java.util.random.RandomGeneratorFactory, e.g. "L64X128MixRandom",
+     * rather than the default, "SplittableRandom".
+     *
+     * @param algorithm the name of the algorithm
+     */
+    public void setRandomAlgorithm(String algorithm) {
+        RandomGeneratorFactory<RandomGenerator> factory;
+        try {
+            factory = RandomGeneratorFactory.of(algorithm);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("BasePSO::setRandomAlgorithm unknown algorithm " +
+                    algorithm, e);
+        }
+        if (!factory.isSplittable()) {
+            throw new IllegalArgumentException("BasePSO::setRandomAlgorithm " + algorithm +
+                    " is not splittable.");
+        }
+        randomFactory = RandomGeneratorFactory.of(algorithm);
+    }
+
+    /**
+     * @return the seed of the last run, which setSeed can reuse to reproduce it
+     */
+    public long getSeed() {
+        return runSeed;
+    }
+
+    /**
+     * @return the current run's random stream, for use on the solver's thread
+     */
+    protected RandomGenerator.SplittableGenerator random() {
+        return random;
+    }
+
+    /**
+     * @return why the last run stopped, or null before the first run
+     */
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * @return the number of iterations completed by the last run
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Score the population concurrently on the given executor (e.g. a
+     * ForkJoinPool, a fixed thread pool or a virtual-thread-per-task
+     * executor). Passing null restores serial evaluation. The executor is
+     * not shut down by the solver.
+     *
+     * @param executor the executor used to evaluate particles, or null
+     */
+    public void setEvaluationExecutor(ExecutorService executor) {
+        evaluationExecutor = executor;
+    }
+
+    /**
+     * Store the swarm as contiguous position, velocity and pBest matrices
+     * rather than as a list of Particle objects. Iterations then run without
+     * allocating, which removes GC pressure for large populations. Only the
+     * BasePSO loop uses this backend; NovelPSO's evolutionary operators work
+     * on Particle objects.
+     *
+     * @param flat true to use the flat backend
+     */
+    public void setFlatStorage(boolean flat) {
+        flatStorage = flat;
+    }
+
+    public void setPopulationSize(int size) {
+        if (size < 2) {
+            throw new IllegalArgumentException("BasePSO::setPopulationSize argument must be > 1; " +
+                    "it was " + size);
+        }
+        populationSize = size;
+    }
+
+    /**
+     * Screen candidates on a mini-batch of the problem's samples before
+     * evaluating them in full; see MiniBatch. Passing null restores full
+     * evaluation of every candidate.
+     *
+     * @param miniBatch the mini-batch configuration, or null
+     */
+    public void setMiniBatch(MiniBatch miniBatch) {
+        if (miniBatch != null && !(problem instanceof SampledProblem)) {
+            throw new IllegalArgumentException("BasePSO::setMiniBatch requires a SampledProblem.");
+        }
+        this.miniBatch = miniBatch;
+    }
+
+    /**
+     * How particles which move outside the problem's bounds are handled. By
+     * default they are left where they are and not evaluated (INVISIBLE_WALL).
+     *
+     * @param boundary the boundary handling
+     */
+    public void setBoundary(Boundary boundary) {
+        if (boundary == null) {
+            throw new IllegalArgumentException("BasePSO::setBoundary argument must not be null.");
+        }
+        this.boundary = boundary;
+    }
+
+    /**
+     * Limit each component of a particle's velocity to a fraction of the
+     * range of its dimension, e.g. 0.5 for at most half the range per
+     * iteration. 0, the default, leaves velocities unlimited.
+     *
+     * @param fraction the fraction of the range
+     */
+    public void setVelocityClamp(double fraction) {
+        if (fraction < 0) {
+            throw new IllegalArgumentException("BasePSO::setVelocityClamp argument must be non-" +
+                    "negative; it was " + fraction + ".");
+        }
+        velocityClamp = fraction;
+    }
+
+    /**
+     * @return problem.limits(), fetched once
+     */
+    protected Bounds limits() {
+        if (limits == null) {
+            Bounds problemLimits = problem.limits();
+            if (problemLimits.dimensions() != problem.dimensions()) {
+                throw new IllegalArgumentException("BasePSO requires bounds for each of the " +
+                        problem.dimensions() + " dimensions; there were " +
+                        problemLimits.dimensions() + ".");
+            }
+            limits = problemLimits;
+        }
+        return limits;
+    }
+
+    // velocity limited by the velocity clamp of dimension i, if any
+    private double clampVelocity(double velocity, int i) {
+        if (velocityClamp == 0.0) return velocity;
+        double max = velocityClamp * limits().range(i);
+        return velocity > max ? max : velocity < -max ? -max : velocity;
+    }
+
+    // applies the boundary handling to the particle whose position and velocity
+    // are at positions[offset...] and velocities[offset...]
+    private void confine(double[] positions, double[] velocities, int offset) {
+        if (boundary == Boundary.INVISIBLE_WALL) return;
+        Bounds bounds = limits();
+        for (int i = 0; i < bounds.dimensions(); i++) {
+            int k = offset + i;
+            double min = bounds.min(i);
+            double max = bounds.max(i);
+            double x = positions[k];
+            if (x >= min && x <= max) continue;
+            if (boundary == Boundary.CLAMP) {
+                x = x < min ? min : max;
+                velocities[k] = 0.0;
+            } else {
+                x = x < min ? 2 * min - x : 2 * max - x;
+                velocities[k] = -velocities[k];
+                // overshot by more than the whole range
+                if (x < min) x = min;
+                else if (x > max) x = max;
+            }
+            positions[k] = x;
+        }
+    }
+
+    /**
+     * Screen candidates with a surrogate model of the fitness before
+     * evaluating them; see Surrogate. With a mini-batch as well, the
+     * surrogate screens first. Passing null disables it. Every move of the
+     * swarm is screened against its particle's pBest, so a surrogate which
+     * screens before its predictions are reliable (see Surrogate::setWarmUp)
+     * costs BasePSO final fitness.
+     *
+     * @param surrogate the surrogate, or null
+     */
+    public void setSurrogate(Surrogate surrogate) {
+        this.surrogate = surrogate;
+    }
+
+    /**
+     * Periodically exchange the swarm's best solution with other solvers
+     * through the given migration, e.g. one island of an IslandModel.
+     * Immigrants replace the particles with the worst pBests. Passing null
+     * disables migration.
+     *
+     * @param migration the migration, or null
+     */
+    public void setMigration(Migration migration) {
+        this.migration = migration;
+    }
+
+    /**
+     * @return the number of migrants dropped during the current or last run
+     * because their solutions had the wrong number of dimensions
+     */
+    public long getRejectedMigrantCount() {
+        return rejectedMigrants;
+    }
+
+    /**
+     * Periodically save the complete state of the run to a file, from which
+     * resume can continue it. A checkpoint is written after the first
+     * iteration to end at least interval after the previous one. Passing a
+     * null file disables checkpoints.
+     *
+     * @param file the checkpoint file, which is replaced each time
+     * @param interval the minimum time between checkpoints
+     */
+    public void setCheckpoint(Path file, Duration interval) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("BasePSO::setCheckpoint interval must not be " +
+                    "negative; it was " + interval);
+        }
+        checkpointFile = file;
+        checkpointIntervalNanos = interval.toNanos();
+    }
+
+    protected ExecutorService getEvaluationExecutor() {
+        return evaluationExecutor;
+    }
+
+    protected int populationSize() {
+        return populationSize > 0
+                ? populationSize
+                : PSOData.BASE_POPULATION + (int) Math.round(Math.sqrt(problem.dimensions()));
+    }
+
     public double[] getBest() {
         return bestSolution;
     }
@@ -46,27 +433,417 @@ public class BasePSO {
         bestSolution = best;
     }
 
-    protected void record(double[] currentBest) {
-        history.add(String.valueOf(problem.evaluate(currentBest)));
+    /**
+     * @return the fitness of getBest() after solve, or NaN before
+     */
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * Number of fitness evaluations this solver has made so far: each
+     * solution passed to Problem::evaluate or evaluateBatch counts one,
+     * including the full-data confirmations of mini-batch mode (though not
+     * its estimates) and the full re-scores of a StreamingProblem's advance,
+     * as do each IncrementalProblem::prepare and each evaluateChange.
+     * Fitness is cached on particles and on gBest, so a position is normally
+     * evaluated once, but one whose fitness is NaN, the marker for unknown,
+     * is evaluated again.
+     *
+     * @return the number of fitness evaluations performed
+     */
+    public long getEvaluationCount() {
+        return evaluations.get();
+    }
+
+    /**
+     * @return the fitness history, phase timings and progress listeners of this solver
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    protected void record(double currentBestFitness) {
+        metrics.record(currentBestFitness);
+    }
+
+    /**
+     * Hand a snapshot of the current iteration to the progress listeners, if
+     * there are any. Called after shouldStop, so that the last snapshot of a
+     * run carries its stop reason.
+     *
+     * @param gBest the swarm's best solution
+     * @param gBestFitness its fitness
+     */
+    protected void publish(double[] gBest, double gBestFitness) {
+        if (!metrics.hasListeners()) return;
+        metrics.publish(new IterationSnapshot(run, iterations, gBest, gBestFitness, evaluations.get(),
+                System.nanoTime() - startNanos, metrics.copyPhaseNanos(), stopReason));
+    }
+
+    protected double evaluate(double[] params) {
+        evaluations.incrementAndGet();
+        return problem.evaluate(params);
+    }
+
+    /**
+     * Evaluate a solution through IncrementalProblem::prepare, counting one
+     * evaluation.
+     */
+    protected IncrementalProblem.Evaluation prepare(double[] params) {
+        evaluations.incrementAndGet();
+        return ((IncrementalProblem) problem).prepare(params);
+    }
+
+    /**
+     * Score a change to a prepared solution, counting one evaluation.
+     *
+     * @see IncrementalProblem.Evaluation#evaluateChange
+     */
+    protected double evaluateChange(IncrementalProblem.Evaluation base, double[] changed,
+                                    int from, int to) {
+        evaluations.incrementAndGet();
+        return base.evaluateChange(changed, from, to);
+    }
+
+    /**
+     * Evaluate every candidate through Problem::evaluateBatch, split across
+     * the evaluation executor when one is set. Null candidates are skipped and
+     * scored as NaN. Not safe for concurrent use by several threads.
+     *
+     * @param candidates the solutions to evaluate
+     * @param results receives the fitness of candidates[i] at results[i]
+     */
+    protected void evaluateAll(double[][] candidates, double[] results) {
+        int count = pack(candidates);
+        for (int i = 0; i < candidates.length; i++) {
+            if (candidates[i] == null) results[i] = Double.NaN;
+        }
+        if (count == 0) return;
+
+        evaluations.addAndGet(count);
+        if (evaluationExecutor == null) {
+            problem.evaluateBatch(batch, 0, count, batchResults);
+        } else {
+            evaluateConcurrently(count);
+        }
+        for (int i = 0; i < count; i++) {
+            results[batchIndex[i]] = batchResults[i];
+            batch[i] = null;
+        }
+        if (surrogate != null) surrogate.learn(candidates, results);
+    }
+
+    /**
+     * Whether a single candidate is worth evaluating, according to the
+     * surrogate if there is one. If so, pass its fitness to learn.
+     */
+    protected boolean shouldEvaluate(double[] candidate, double pBestFitness, double gBestFitness) {
+        return surrogate == null
+                || surrogate.shouldEvaluate(candidate, pBestFitness, gBestFitness, random);
+    }
+
+    /**
+     * Train the surrogate, if there is one, on a candidate evaluated
+     * outside of evaluateAll.
+     */
+    protected void learn(double[] candidate, double fitness) {
+        if (surrogate != null) surrogate.learn(candidate, fitness);
+    }
+
+    /**
+     * With a surrogate, drop (set to null) every candidate it predicts not to
+     * improve on its pBest or on gBest, so that evaluateAll skips them. In
+     * mini-batch mode, estimate the remaining candidates on a mini-batch and
+     * drop those likewise.
+     *
+     * @param candidates the solutions about to be evaluated
+     * @param pBestFitness the fitness of the pBest of the particle at candidates[i]
+     * @param gBestFitness the fitness of the swarm's gBest
+     */
+    protected void screen(double[][] candidates, double[] pBestFitness, double gBestFitness) {
+        if (surrogate != null) surrogate.screen(candidates, pBestFitness, gBestFitness, random);
+        if (miniBatch == null) return;
+        int count = pack(candidates);
+        if (count == 0) return;
+
+        miniBatch.estimate((SampledProblem) problem, batch, count, batchResults, random);
+        for (int i = 0; i < count; i++) {
+            int index = batchIndex[i];
+            if (!miniBatch.shouldRescore(batchResults[i], pBestFitness[index], gBestFitness)) {
+                candidates[index] = null;
+            }
+            batch[i] = null;
+        }
+    }
+
+    // gathers the non-null candidates into batch, recording their positions in batchIndex
+    private int pack(double[][] candidates) {
+        if (batch.length < candidates.length) {
+            batch = new double[candidates.length][];
+            batchResults = new double[candidates.length];
+            batchIndex = new int[candidates.length];
+        }
+        int count = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if (candidates[i] == null) continue;
+            batch[count] = candidates[i];
+            batchIndex[count] = i;
+            count++;
+        }
+        return count;
+    }
+
+    private void evaluateConcurrently(int count) {
+        int chunks = Math.min(count, Runtime.getRuntime().availableProcessors());
+        List<Callable<Void>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) count * c / chunks);
+            int to = (int) ((long) count * (c + 1) / chunks);
+            tasks.add(() -> {
+                problem.evaluateBatch(batch, from, to, batchResults);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : evaluationExecutor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("BasePSO::evaluateAll was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("BasePSO::evaluateAll failed.", e.getCause());
+        }
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (String entry : history) {
+        for (double entry : metrics.getHistory()) {
             sb.append("=> " + entry + "\n");
         }
         return sb.toString();
     }
 
+    /**
+     * Run the solver. A StreamingProblem's queued changes are applied first,
+     * and one which still has no data is rejected.
+     */
     public void solve() {
-        ParticleSwarm particleSwarm = new ParticleSwarm();
-        int ticks = runTime;
-        while (ticks > 0) {
-            particleSwarm.updatePopulation();
-            particleSwarm.evaluatePopulation();
-            record(particleSwarm.getGBest());
-            ticks--;
+        startRun();
+        if (problem instanceof StreamingProblem) {
+            StreamingProblem streaming = (StreamingProblem) problem;
+            streaming.advance(new double[0][], new double[0], 0);
+            checkNotEmpty(streaming, "solve");
+        }
+        run(createSwarm());
+    }
+
+    // the swarm is scored over the problem's data before the first advance
+    private void checkNotEmpty(StreamingProblem streaming, String method) {
+        if (streaming.isEmpty() && !streaming.hasQueuedChanges()) {
+            throw new IllegalStateException("BasePSO::" + method + " " + problem.getClass().getSimpleName() +
+                    " has no data to evaluate solutions over; append some before solving.");
+        }
+    }
+
+    /**
+     * Continue a run from a checkpoint written by a solver of the same kind
+     * on the same problem, as if it had never stopped: the swarm, gBest,
+     * iteration and evaluation counts, elapsed time, stagnation state and
+     * fitness history are restored, and the run proceeds under this solver's
+     * stopping criteria. The resumed run's population size is taken from the
+     * checkpoint; later runs use this solver's own.
+     *
+     * @param checkpoint the checkpoint file
+     */
+    public void resume(Path checkpoint) throws IOException {
+        Checkpoint state = Checkpoint.read(checkpoint);
+        startRun(state);
+        if (problem instanceof StreamingProblem) checkNotEmpty((StreamingProblem) problem, "resume");
+
+        Swarm particleSwarm;
+        resuming = state;
+        try {
+            particleSwarm = createSwarm();
+        } finally {
+            resuming = null;
+        }
+        run(particleSwarm);
+    }
+
+    private void run(Swarm particleSwarm) {
+        while (true) {
+            if (problem instanceof StreamingProblem) {
+                evaluations.addAndGet(particleSwarm.advance((StreamingProblem) problem));
+            }
+            iterate(particleSwarm);
+            if (migration != null && (iterations + 1) % migration.interval() == 0) {
+                migrate(particleSwarm);
+            }
+            boolean stop = shouldStop(particleSwarm.getGBestFitness());
+            publish(particleSwarm.getGBest(), particleSwarm.getGBestFitness());
+            if (stop) break;
+            if (checkpointDue()) checkpoint(particleSwarm);
+        }
+        setBest(particleSwarm.getGBest().clone());
+        bestFitness = particleSwarm.getGBestFitness();
+    }
+
+    private void checkpoint(Swarm particleSwarm) {
+        Checkpoint state = checkpointState(particleSwarm.size, particleSwarm.getGBest(),
+                particleSwarm.getGBestFitness());
+        particleSwarm.splitStreams();
+        particleSwarm.saveState(state.positions, state.velocities, state.pBests, state.pBestFitness,
+                state.aliases);
+        writeCheckpoint(state);
+    }
+
+    /**
+     * @return true if checkpoints are enabled and the interval since the
+     * last one, or since the run started, has passed
+     */
+    protected boolean checkpointDue() {
+        return checkpointFile != null
+                && System.nanoTime() - lastCheckpointNanos >= checkpointIntervalNanos;
+    }
+
+    /**
+     * A checkpoint of the current run's gBest, counters and history, for the
+     * caller to fill in the particles' state, aliases included, and pass to
+     * writeCheckpoint.
+     * The run's random stream is re-seeded with a value from which resume
+     * can recreate it, since a generator's state cannot be read; the caller
+     * must then give every particle a new stream split from it, in
+     * population order.
+     *
+     * @param size the number of particles
+     * @param gBest the swarm's best solution, which is copied
+     * @param gBestFitness its fitness
+     */
+    protected Checkpoint checkpointState(int size, double[] gBest, double gBestFitness) {
+        long seed = random.nextLong();
+        random = randomFactory.create(seed);
+        Checkpoint state = new Checkpoint(problem.dimensions(), size, iterations,
+                stagnantIterations, evaluations.get(), evaluations.get() - startEvaluations,
+                System.nanoTime() - startNanos, seed, stagnationBest, gBestFitness,
+                metrics.getHistory());
+        System.arraycopy(gBest, 0, state.gBest, 0, state.dimensions);
+        return state;
+    }
+
+    /**
+     * Write a checkpoint to the file set by setCheckpoint.
+     *
+     * @throws UncheckedIOException if it cannot be written
+     */
+    protected void writeCheckpoint(Checkpoint state) {
+        try {
+            state.write(checkpointFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("BasePSO::checkpoint could not write " + checkpointFile, e);
+        }
+        lastCheckpointNanos = System.nanoTime();
+    }
+
+    protected void startRun() {
+        runSeed = seeded ? seed : new SplittableRandom().nextLong();
+        random = randomFactory.create(runSeed);
+        startNanos = System.nanoTime();
+        lastCheckpointNanos = startNanos;
+        startEvaluations = evaluations.get();
+        iterations = 0;
+        stagnationBest = Double.POSITIVE_INFINITY;
+        stagnantIterations = 0;
+        stopReason = null;
+        rejectedMigrants = 0;
+        run = RUN_IDS.incrementAndGet();
+        if (validationMonitor != null) validationMonitor.reset(run);
+    }
+
+    /**
+     * Start a run continuing a checkpointed one: its counters, elapsed time,
+     * stagnation state, fitness history and random stream are restored. The
+     * swarm is restored from it by the solver.
+     */
+    protected void startRun(Checkpoint state) {
+        if (state.dimensions != problem.dimensions()) {
+            throw new IllegalArgumentException("BasePSO::resume checkpoint is for a problem of " +
+                    state.dimensions + " dimensions, not " + problem.dimensions() + ".");
+        }
+        evaluations.set(state.evaluations);
+        startRun();
+        startNanos -= state.elapsedNanos;
+        startEvaluations -= state.runEvaluations;
+        iterations = state.iterations;
+        stagnationBest = state.stagnationBest;
+        stagnantIterations = state.stagnantIterations;
+        metrics.setHistory(state.history);
+        runSeed = state.randomSeed;
+        random = randomFactory.create(runSeed);
+    }
+
+    /**
+     * Called once at the end of each iteration to check the stopping
+     * criteria, recording the reason when one is met.
+     *
+     * @param gBestFitness the fitness of gBest after the iteration
+     * @return true if the run should stop
+     */
+    protected boolean shouldStop(double gBestFitness) {
+        iterations++;
+        if (stagnationBest - gBestFitness > minImprovement) {
+            stagnationBest = gBestFitness;
+            stagnantIterations = 0;
+        } else {
+            stagnantIterations++;
+        }
+
+        if (stopRequested) {
+            stopRequested = false;
+            stopReason = StopReason.CANCELLED;
+        } else if (gBestFitness <= targetFitness) {
+            stopReason = StopReason.TARGET_FITNESS;
+        } else if (evaluations.get() - startEvaluations >= evaluationBudget) {
+            stopReason = StopReason.EVALUATION_BUDGET;
+        } else if (System.nanoTime() - startNanos >= timeLimitNanos) {
+            stopReason = StopReason.TIME_LIMIT;
+        } else if (stagnationWindow > 0 && stagnantIterations >= stagnationWindow) {
+            stopReason = StopReason.STAGNATION;
+        } else if (validationMonitor != null && validationMonitor.shouldStop()) {
+            stopReason = StopReason.VALIDATION;
+        } else if (iterations >= runTime) {
+            stopReason = StopReason.ITERATIONS;
+        }
+        return stopReason != null;
+    }
+
+    protected Swarm createSwarm() {
+        return flatStorage ? new FlatParticleSwarm() : new ParticleSwarm();
+    }
+
+    protected void iterate(Swarm particleSwarm) {
+        long start = System.nanoTime();
+        particleSwarm.updatePopulation();
+        metrics.time(SolverMetrics.Phase.UPDATE, start);
+        start = System.nanoTime();
+        particleSwarm.evaluatePopulation();
+        metrics.time(SolverMetrics.Phase.EVALUATE, start);
+        record(particleSwarm.getGBestFitness());
+    }
+
+    private void migrate(Swarm particleSwarm) {
+        List<Migration.Migrant> immigrants =
+                migration.exchange(particleSwarm.getGBest(), particleSwarm.getGBestFitness());
+        for (Migration.Migrant immigrant : immigrants) {
+            // migration is best-effort, so a malformed migrant is dropped like a lost one
+            if (immigrant.getPosition().length != problem.dimensions()) {
+                rejectedMigrants++;
+                continue;
+            }
+            particleSwarm.acceptImmigrant(immigrant.getPosition(), immigrant.getFitness());
         }
     }
 
@@ -75,9 +852,11 @@ public class BasePSO {
         private final double inertia = PSOData.DEFAULT_INERTIA;
         private final double cognitive = PSOData.computeCognitive(cognitiveCoeff);
         private final double social = PSOData.computeSocial(socialCoeff);
+        private RandomGenerator random = BasePSO.this.random.split();
         private double[] pBest;
         private double[] velocity;
         private double[] position;
+        private double pBestFitness = Double.NaN;
         private int length;
 
         /**
@@ -92,6 +871,16 @@ public class BasePSO {
          * @param velocity the velocity of the Particle
          */
         public Particle(double[] position, double[] pBest, double[] velocity) {
+            this(position, pBest, velocity, Double.NaN);
+        }
+
+        /**
+         * As above, but carrying over the already known fitness of pBest so that
+         * it does not need to be evaluated again.
+         *
+         * @param pBestFitness the fitness of pBest, or NaN if not yet known
+         */
+        public Particle(double[] position, double[] pBest, double[] velocity, double pBestFitness) {
             if (position.length != pBest.length || position.length != velocity.length) {
                 throw new IllegalArgumentException("Particle constructor arguments must be of equal" +
                         " length.");
@@ -105,6 +894,7 @@ public class BasePSO {
                 this.pBest[i] = pBest[i];
                 this.velocity[i] = velocity[i];
             }
+            this.pBestFitness = pBestFitness;
         }
 
         public Particle(double[] initialPos, double[] initialOffset) {
@@ -123,6 +913,13 @@ public class BasePSO {
             }
         }
 
+        /**
+         * Give the particle a new random stream, split from the run's.
+         */
+        protected void splitStream() {
+            random = BasePSO.this.random.split();
+        }
+
         public double[] getPosition() {
             return position;
         }
@@ -135,7 +932,22 @@ public class BasePSO {
             return pBest;
         }
 
+        /**
+         * Fitness of pBest, evaluated on first use and cached thereafter.
+         * @return the fitness of the personal best position
+         */
+        public double getPBestFitness() {
+            if (Double.isNaN(pBestFitness)) {
+                pBestFitness = evaluate(pBest);
+            }
+            return pBestFitness;
+        }
+
         public void setPBest(double[] newBest) {
+            setPBest(newBest, Double.NaN);
+        }
+
+        public void setPBest(double[] newBest, double fitness) {
             if (pBest.length != newBest.length) {
                 throw new IllegalArgumentException("Particle::setPBest argument length is " +
                         "not of the correct length.");
@@ -143,12 +955,14 @@ public class BasePSO {
             for (int i = 0; i < newBest.length; i++) {
                 pBest[i] = newBest[i];
             }
+            pBestFitness = fitness;
         }
 
         public void updatePosition() {
             for (int i = 0; i < length; i++)  {
                 position[i] += velocity[i];
             }
+            confine(position, velocity, 0);
         }
 
         /**
@@ -164,35 +978,49 @@ public class BasePSO {
             for (int i = 0; i < length; i++) {
                 velocity[i] =
                         inertia * velocity[i]
-                        + cognitive * Math.random() * (pBest[i] - position[i])
-                        + social * Math.random() * (gBest[i] - position[i]);
+                        + cognitive * random.nextDouble() * (pBest[i] - position[i])
+                        + social * random.nextDouble() * (gBest[i] - position[i]);
+                velocity[i] = clampVelocity(velocity[i], i);
             }
         }
     }
 
-    class ParticleSwarm {
-        protected List<Particle> population;
-        private double[] gBest;
-        private int size;
+    /**
+     * State shared by every swarm backend: the population size and the
+     * global best position found so far, with its cached fitness.
+     */
+    abstract class Swarm {
+        protected final int size;
+        protected double[] gBest;
+        private double gBestFitness = Double.NaN;
+        // scratch space for advance
+        private double[][] streamingSolutions = new double[0][];
+        private double[] streamingFitness = new double[0];
 
-        public ParticleSwarm() {
-            size = PSOData.BASE_POPULATION + (int) Math.round(Math.sqrt(problem.dimensions()));
-            population = new ArrayList<>();
-            initialise();
-        }
-
-        private void initialise() {
-            for (int i = 0; i < size; i++) {
-                population.add(new Particle(problem.generate(), problem.generate()));
-            }
-            gBest = problem.generate();
+        Swarm() {
+            size = resuming != null ? resuming.size : populationSize();
         }
 
         public double[] getGBest() {
             return gBest;
         }
 
+        /**
+         * Fitness of gBest, evaluated on first use and cached thereafter.
+         * @return the fitness of the global best position
+         */
+        public double getGBestFitness() {
+            if (Double.isNaN(gBestFitness)) {
+                gBestFitness = evaluate(gBest);
+            }
+            return gBestFitness;
+        }
+
         public void setGBest(double[] newGBest) {
+            setGBest(newGBest, Double.NaN);
+        }
+
+        public void setGBest(double[] newGBest, double fitness) {
             if (gBest.length != newGBest.length) {
                 throw new IllegalArgumentException("ParticleSwarm::setGBest argument was not" +
                         " of the correct length");
@@ -200,36 +1028,415 @@ public class BasePSO {
             for (int i = 0; i < newGBest.length; i++) {
                 gBest[i] = newGBest[i];
             }
+            gBestFitness = fitness;
         }
 
-        protected void evaluatePopulation() {
-            for (Particle particle : population) {
-                double[] currentPos = particle.getPosition();
-                double[] currentBest = particle.getPBest();
+        protected abstract void updatePopulation();
+
+        protected abstract void evaluatePopulation();
+
+        /**
+         * Copy the state of every particle into row-major matrices, where
+         * particle p's value for dimension i is at [p * dimensions + i].
+         * aliases[p] is the first index at which particle p appears in the
+         * population, p itself unless it occupies several places.
+         */
+        protected abstract void saveState(double[] positions, double[] velocities, double[] pBests,
+                                          double[] pBestFitness, int[] aliases);
+
+        /**
+         * Replace the state of every particle with that saved by saveState.
+         */
+        protected abstract void restoreState(double[] positions, double[] velocities, double[] pBests,
+                                             double[] pBestFitness, int[] aliases);
+
+        // sets up a new swarm from a checkpoint, in place of random initialisation, with
+        // the random streams the checkpointed run continued with
+        protected void restore(Checkpoint state) {
+            gBest = state.gBest.clone();
+            gBestFitness = state.gBestFitness;
+            restoreState(state.positions, state.velocities, state.pBests, state.pBestFitness,
+                    state.aliases);
+            random = randomFactory.create(state.randomSeed);
+            splitStreams();
+        }
+
+        /**
+         * Apply a StreamingProblem's queued changes to its data, bringing the
+         * cached fitness of gBest and every pBest up to date. A pBest may then
+         * beat gBest, and replace it.
+         *
+         * @return the number of solutions evaluated in full
+         */
+        protected int advance(StreamingProblem streaming) {
+            if (!streaming.hasQueuedChanges()) return 0;
+            int n = collectBests(streamingSolutions, streamingFitness);
+            if (streamingSolutions.length < n + 1) {
+                streamingSolutions = new double[n + 1][];
+                streamingFitness = new double[n + 1];
+                collectBests(streamingSolutions, streamingFitness);
+            }
+            streamingSolutions[n] = gBest;
+            streamingFitness[n] = gBestFitness;
+            int evaluated = streaming.advance(streamingSolutions, streamingFitness, n + 1);
+            gBestFitness = streamingFitness[n];
+            updateBests(streamingFitness);
+            for (int p = 0; p < n; p++) {
+                if (streamingFitness[p] < getGBestFitness()) {
+                    setGBest(streamingSolutions[p], streamingFitness[p]);
+                }
+            }
+            return evaluated;
+        }
+
+        /**
+         * Gather every pBest and its cached fitness, which may be NaN, as far
+         * as the arrays have room.
+         *
+         * @return the number of particles
+         */
+        protected abstract int collectBests(double[][] pBests, double[] pBestFitness);
+
+        /**
+         * Replace the cached fitness of every pBest, in collectBests order.
+         */
+        protected abstract void updateBests(double[] pBestFitness);
+
+        /**
+         * Give every particle a new stream split from the run's, in
+         * population order, as a new swarm does.
+         */
+        protected abstract void splitStreams();
+
+        /**
+         * Replace the particle with the worst pBest by a solution found
+         * elsewhere, keeping its velocity.
+         *
+         * @param position the solution, which becomes the particle's position and pBest
+         * @param fitness the fitness of the solution
+         */
+        protected abstract void acceptImmigrant(double[] position, double fitness);
+    }
+
+    class ParticleSwarm extends Swarm {
+        protected List<Particle> population;
+
+        public ParticleSwarm() {
+            population = new ArrayList<>();
+            if (resuming != null) restore(resuming);
+            else initialise();
+        }
 
+        private void initialise() {
+            double[][] initialBests = new double[size][];
+            for (int i = 0; i < size; i++) {
+                Particle particle = new Particle(problem.generate(random), problem.generate(random));
+                population.add(particle);
+                initialBests[i] = particle.getPBest();
+            }
+            gBest = problem.generate(random);
+
+            double[] fitness = new double[size];
+            evaluateAll(initialBests, fitness);
+            for (int i = 0; i < size; i++) {
+                population.get(i).pBestFitness = fitness[i];
+            }
+        }
+
+        @Override
+        protected void evaluatePopulation() {
+            int n = population.size();
+            double[][] positions = new double[n][];
+            double[] pBestFitness = new double[n];
+            for (int i = 0; i < n; i++) {
+                Particle particle = population.get(i);
+                pBestFitness[i] = particle.getPBestFitness();
                 // "invisible wall" -- if the Particle does not satisfy the constraints
                 // of the problem, do not evaluate it.
-                if (!problem.validates(currentPos)) continue;
+                if (!problem.validates(particle.getPosition())) continue;
+                positions[i] = particle.getPosition();
+            }
+            screen(positions, pBestFitness, getGBestFitness());
+
+            // score every particle (possibly concurrently), then apply the pBest and
+            // gBest updates in population order so the outcome does not depend on
+            // the order in which evaluations finish
+            double[] fitness = new double[n];
+            evaluateAll(positions, fitness);
+
+            for (int i = 0; i < n; i++) {
+                if (positions[i] == null) continue;
+                Particle particle = population.get(i);
 
                 // check if the Particle current position is the best position it has found -
                 // i.e. better than its personal best
-                if (problem.evaluate(currentPos) < problem.evaluate(currentBest)) {
-                    particle.setPBest(currentPos);
+                if (fitness[i] < particle.getPBestFitness()) {
+                    particle.setPBest(positions[i], fitness[i]);
                 }
 
                 // check if the Particle current position is the best position the
                 // population has ever found
-                if (problem.evaluate(currentPos) < problem.evaluate(gBest)) {
-                    setGBest(currentPos);
+                if (fitness[i] < getGBestFitness()) {
+                    setGBest(positions[i], fitness[i]);
                 }
-            };
+            }
         }
 
+        @Override
         protected void updatePopulation() {
             for (Particle particle : population) {
                 particle.updateVelocity(gBest);
                 particle.updatePosition();
             }
         }
+
+        @Override
+        protected void saveState(double[] positions, double[] velocities, double[] pBests,
+                                 double[] pBestFitness, int[] aliases) {
+            Map<Particle, Integer> first = new IdentityHashMap<>();
+            for (int p = 0; p < population.size(); p++) {
+                Particle particle = population.get(p);
+                Integer seen = first.putIfAbsent(particle, p);
+                aliases[p] = seen == null ? p : seen;
+                int length = particle.length;
+                System.arraycopy(particle.getPosition(), 0, positions, p * length, length);
+                System.arraycopy(particle.getVelocity(), 0, velocities, p * length, length);
+                System.arraycopy(particle.getPBest(), 0, pBests, p * length, length);
+                pBestFitness[p] = particle.getPBestFitness();
+            }
+        }
+
+        @Override
+        protected void restoreState(double[] positions, double[] velocities, double[] pBests,
+                                    double[] pBestFitness, int[] aliases) {
+            int dimensions = problem.dimensions();
+            population.clear();
+            for (int p = 0; p < size; p++) {
+                if (aliases[p] != p) {
+                    population.add(population.get(aliases[p]));
+                    continue;
+                }
+                int from = p * dimensions;
+                int to = from + dimensions;
+                population.add(new Particle(Arrays.copyOfRange(positions, from, to),
+                        Arrays.copyOfRange(pBests, from, to), Arrays.copyOfRange(velocities, from, to),
+                        pBestFitness[p]));
+            }
+        }
+
+        @Override
+        protected void splitStreams() {
+            for (Particle particle : population) {
+                particle.splitStream();
+            }
+        }
+
+        @Override
+        protected int collectBests(double[][] pBests, double[] pBestFitness) {
+            int n = Math.min(population.size(), pBests.length);
+            for (int i = 0; i < n; i++) {
+                Particle particle = population.get(i);
+                pBests[i] = particle.getPBest();
+                pBestFitness[i] = particle.pBestFitness;
+            }
+            return population.size();
+        }
+
+        @Override
+        protected void updateBests(double[] pBestFitness) {
+            for (int i = 0; i < population.size(); i++) {
+                population.get(i).pBestFitness = pBestFitness[i];
+            }
+        }
+
+        @Override
+        protected void acceptImmigrant(double[] position, double fitness) {
+            int worst = 0;
+            for (int i = 1; i < population.size(); i++) {
+                if (population.get(i).getPBestFitness() > population.get(worst).getPBestFitness()) {
+                    worst = i;
+                }
+            }
+            population.set(worst, new Particle(position, position,
+                    population.get(worst).getVelocity(), fitness));
+            if (fitness < getGBestFitness()) {
+                setGBest(position, fitness);
+            }
+        }
+    }
+
+    /**
+     * Structure-of-arrays swarm: the positions, velocities and pBests of all
+     * particles are stored row by row in three flat matrices, and particles
+     * are addressed by index. Every buffer is allocated up front, so a serial
+     * iteration allocates nothing.
+     */
+    class FlatParticleSwarm extends Swarm {
+        private final double inertia = PSOData.DEFAULT_INERTIA;
+        private final double cognitive = PSOData.computeCognitive(cognitiveCoeff);
+        private final double social = PSOData.computeSocial(socialCoeff);
+        private final int dimensions;
+        private final double[] positions;
+        private final double[] velocities;
+        private final double[] pBests;
+        private final double[] pBestFitness;
+        private final double[] fitness;
+        private final RandomGenerator[] streams;
+        // per-particle copies of the current positions handed to Problem::evaluate,
+        // and the subset of them which are valid this iteration
+        private final double[][] rows;
+        private final double[][] candidates;
+
+        public FlatParticleSwarm() {
+            dimensions = problem.dimensions();
+            positions = new double[size * dimensions];
+            velocities = new double[size * dimensions];
+            pBests = new double[size * dimensions];
+            pBestFitness = new double[size];
+            fitness = new double[size];
+            rows = new double[size][dimensions];
+            candidates = new double[size][];
+            streams = new RandomGenerator[size];
+            splitStreams();
+            if (resuming != null) restore(resuming);
+            else initialise();
+        }
+
+        private void initialise() {
+            for (int p = 0; p < size; p++) {
+                double[] initialPos = problem.generate(random);
+                double[] initialOffset = problem.generate(random);
+                int row = p * dimensions;
+                for (int i = 0; i < dimensions; i++) {
+                    positions[row + i] = initialPos[i];
+                    pBests[row + i] = initialPos[i];
+                    velocities[row + i] = (initialPos[i] - initialOffset[i]) / 3;
+                }
+                candidates[p] = initialPos;
+            }
+            gBest = problem.generate(random);
+            evaluateAll(candidates, pBestFitness);
+        }
+
+        public double position(int particle, int dimension) {
+            return positions[particle * dimensions + dimension];
+        }
+
+        public double velocity(int particle, int dimension) {
+            return velocities[particle * dimensions + dimension];
+        }
+
+        public double pBest(int particle, int dimension) {
+            return pBests[particle * dimensions + dimension];
+        }
+
+        public double getPBestFitness(int particle) {
+            return pBestFitness[particle];
+        }
+
+        public void copyPosition(int particle, double[] destination) {
+            System.arraycopy(positions, particle * dimensions, destination, 0, dimensions);
+        }
+
+        @Override
+        protected void updatePopulation() {
+            for (int p = 0; p < size; p++) {
+                int row = p * dimensions;
+                RandomGenerator stream = streams[p];
+                for (int i = 0; i < dimensions; i++) {
+                    int k = row + i;
+                    double velocity =
+                            inertia * velocities[k]
+                            + cognitive * stream.nextDouble() * (pBests[k] - positions[k])
+                            + social * stream.nextDouble() * (gBest[i] - positions[k]);
+                    velocity = clampVelocity(velocity, i);
+                    velocities[k] = velocity;
+                    positions[k] += velocity;
+                }
+                confine(positions, velocities, row);
+            }
+        }
+
+        @Override
+        protected void evaluatePopulation() {
+            for (int p = 0; p < size; p++) {
+                copyPosition(p, rows[p]);
+                // "invisible wall" -- invalid particles are not evaluated
+                candidates[p] = problem.validates(rows[p]) ? rows[p] : null;
+            }
+
+            screen(candidates, pBestFitness, getGBestFitness());
+            evaluateAll(candidates, fitness);
+
+            for (int p = 0; p < size; p++) {
+                if (candidates[p] == null) continue;
+                if (fitness[p] < pBestFitness[p]) {
+                    System.arraycopy(positions, p * dimensions, pBests, p * dimensions, dimensions);
+                    pBestFitness[p] = fitness[p];
+                }
+                if (fitness[p] < getGBestFitness()) {
+                    setGBest(rows[p], fitness[p]);
+                }
+            }
+        }
+
+        @Override
+        protected void saveState(double[] positions, double[] velocities, double[] pBests,
+                                 double[] pBestFitness, int[] aliases) {
+            for (int p = 0; p < size; p++) {
+                aliases[p] = p;
+            }
+            System.arraycopy(this.positions, 0, positions, 0, this.positions.length);
+            System.arraycopy(this.velocities, 0, velocities, 0, this.velocities.length);
+            System.arraycopy(this.pBests, 0, pBests, 0, this.pBests.length);
+            System.arraycopy(this.pBestFitness, 0, pBestFitness, 0, size);
+        }
+
+        @Override
+        protected void restoreState(double[] positions, double[] velocities, double[] pBests,
+                                    double[] pBestFitness, int[] aliases) {
+            System.arraycopy(positions, 0, this.positions, 0, this.positions.length);
+            System.arraycopy(velocities, 0, this.velocities, 0, this.velocities.length);
+            System.arraycopy(pBests, 0, this.pBests, 0, this.pBests.length);
+            System.arraycopy(pBestFitness, 0, this.pBestFitness, 0, size);
+        }
+
+        @Override
+        protected void splitStreams() {
+            for (int p = 0; p < size; p++) {
+                streams[p] = random.split();
+            }
+        }
+
+        @Override
+        protected int collectBests(double[][] pBests, double[] pBestFitness) {
+            int n = Math.min(size, pBests.length);
+            for (int p = 0; p < n; p++) {
+                // copies of the rows, allocated on first use
+                if (pBests[p] == null) pBests[p] = new double[dimensions];
+                System.arraycopy(this.pBests, p * dimensions, pBests[p], 0, dimensions);
+                pBestFitness[p] = this.pBestFitness[p];
+            }
+            return size;
+        }
+
+        @Override
+        protected void updateBests(double[] pBestFitness) {
+            System.arraycopy(pBestFitness, 0, this.pBestFitness, 0, size);
+        }
+
+        @Override
+        protected void acceptImmigrant(double[] position, double fitness) {
+            int worst = 0;
+            for (int p = 1; p < size; p++) {
+                if (pBestFitness[p] > pBestFitness[worst]) worst = p;
+            }
+            System.arraycopy(position, 0, positions, worst * dimensions, dimensions);
+            System.arraycopy(position, 0, pBests, worst * dimensions, dimensions);
+            pBestFitness[worst] = fitness;
+            if (fitness < getGBestFitness()) {
+                setGBest(position, fitness);
+            }
+        }
     }
 }
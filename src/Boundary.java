@@ -0,0 +1,12 @@
+/**
+ * What a swarm does with a particle which moves outside the problem's
+ * Bounds.
+ */
+public enum Boundary {
+    /** leave it there, unevaluated, until it flies back in */
+    INVISIBLE_WALL,
+    /** stop it at the bound, zeroing that component of its velocity */
+    CLAMP,
+    /** bounce it back off the bound, reversing that component of its velocity */
+    REFLECT
+}
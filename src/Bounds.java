@@ -0,0 +1,95 @@
+import java.util.Arrays;
+
+/**
+ * Immutable box constraints of a Problem: the minimum and maximum
+ * permissible value of each dimension, stored as two flat arrays.
+ */
+public final class Bounds {
+
+    private final double[] min;
+    private final double[] max;
+
+    /**
+     * @param min the minimum of each dimension, which is copied
+     * @param max the maximum of each dimension, which is copied
+     */
+    public Bounds(double[] min, double[] max) {
+        if (min.length != max.length) {
+            throw new IllegalArgumentException("Bounds arguments must be of equal length.");
+        }
+        for (int i = 0; i < min.length; i++) {
+            if (!(min[i] <= max[i])) {
+                throw new IllegalArgumentException("Bounds minimum must not exceed the maximum; " +
+                        "dimension " + i + " was [" + min[i] + ", " + max[i] + "].");
+            }
+        }
+        this.min = min.clone();
+        this.max = max.clone();
+    }
+
+    /**
+     * @return bounds of [min, max] in every one of dimensions dimensions
+     */
+    public static Bounds uniform(int dimensions, double min, double max) {
+        double[] mins = new double[dimensions];
+        double[] maxes = new double[dimensions];
+        Arrays.fill(mins, min);
+        Arrays.fill(maxes, max);
+        return new Bounds(mins, maxes);
+    }
+
+    /**
+     * @param bounds bounds in the form of Problem::bounds, bounds[i] = {min, max}
+     */
+    public static Bounds of(double[][] bounds) {
+        double[] mins = new double[bounds.length];
+        double[] maxes = new double[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            mins[i] = bounds[i][0];
+            maxes[i] = bounds[i][1];
+        }
+        return new Bounds(mins, maxes);
+    }
+
+    public int dimensions() {
+        return min.length;
+    }
+
+    public double min(int dimension) {
+        return min[dimension];
+    }
+
+    public double max(int dimension) {
+        return max[dimension];
+    }
+
+    /**
+     * @return max(dimension) - min(dimension)
+     */
+    public double range(int dimension) {
+        return max[dimension] - min[dimension];
+    }
+
+    /**
+     * @return whether the solution has the right number of dimensions and
+     * every value lies within its bounds
+     */
+    public boolean contains(double[] solution) {
+        if (solution.length != min.length) return false;
+        for (int i = 0; i < min.length; i++) {
+            if (solution[i] < min[i] || solution[i] > max[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return bounds in the form of Problem::bounds, as new arrays
+     */
+    public double[][] toArray() {
+        double[][] bounds = new double[min.length][];
+        for (int i = 0; i < min.length; i++) {
+            bounds[i] = new double[] {min[i], max[i]};
+        }
+        return bounds;
+    }
+}
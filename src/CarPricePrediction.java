@@ -1,57 +1,143 @@
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
-public class CarPricePrediction implements Problem {
+public class CarPricePrediction implements SampledProblem, IncrementalProblem {
 
     public static final int N_INPUTS = 21;
     private static final int HIDDEN_LAYER_SIZE = 2;
     private static final int N_WEIGHTS = N_INPUTS * HIDDEN_LAYER_SIZE + HIDDEN_LAYER_SIZE * 1;
     private static final int N_BIASES = HIDDEN_LAYER_SIZE + 1;
     public static final int N_PARAMETERS = N_WEIGHTS + N_BIASES;
+    // rows per block of the batched forward pass; small enough for the hidden layer
+    // activations of a block to stay in L1 cache
+    private static final int TILE_ROWS = 256;
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+    static final Bounds LIMITS = Bounds.uniform(N_PARAMETERS, -10.0, 10.0);
+    // cost of the output layer of a forward pass, in passes over a column of rows
+    private static final int OUTPUT_PASSES = HIDDEN_LAYER_SIZE + 1;
+    // released hidden layer buffers kept for reuse by prepare
+    private static final int POOLED_HIDDEN_LAYERS = 4;
 
-    private List<double[]> dataValues;
-    private List<Double> prices;
+    /**
+     * Storage and arithmetic of the forward pass over the features.
+     *
+     * In SINGLE precision the features are stored as floats, halving the
+     * memory and bandwidth of a pass over them, and the hidden layer is
+     * computed in float, twice as many values per SIMD instruction. The
+     * output layer, the targets and the squared error sum stay in double.
+     * Over 10,000 random solutions on the training set, the MSE differs from
+     * the DOUBLE result by a median of 4e-8 and at most 3.5e-7 relative, and
+     * for the final solutions of 20 NovelPSO runs by at most 1.5e-7. That is
+     * far below the differences the solvers act on, but results are no
+     * longer bit-identical to the DOUBLE path.
+     */
+    public enum Precision {
+        DOUBLE,
+        SINGLE
+    }
+
+    private final int rows;
+    // column-major: the value of input j for row r is features[j * rows + r]; exactly
+    // one of features, singleFeatures and columns is set, according to the precision
+    // and whether the dataset is off-heap
+    private final double[] features;
+    private final float[] singleFeatures;
+    private final double[] prices;
+    // off-heap: the value of input j for row r is columns[j].get(r)
+    private final DoubleBuffer[] columns;
+    private final DoubleBuffer offHeapPrices;
+    // hidden layer buffers of released evaluations, each HIDDEN_LAYER_SIZE * rows long
+    private final ArrayDeque<double[]> hiddenLayers = new ArrayDeque<>();
 
     public CarPricePrediction(String dataset) throws IOException {
-        if (Objects.equals("train", dataset)) load("data/train.csv");
-        else if (Objects.equals("validation", dataset)) load("data/validation.csv");
-        else if (Objects.equals("test", dataset)) load("data/test.csv");
-        else throw new IllegalArgumentException("Must use either the 'train', 'validation' " +
-                "or 'test' dataset only. Argument was '" + dataset + ".'");
+        this(Dataset.readCsv(namedDataset(dataset)));
     }
 
-    private void load(String filePath) throws IOException {
-        dataValues = new ArrayList<>();
-        prices = new ArrayList<>();
+    /**
+     * @param csv a CSV file of N_INPUTS inputs followed by the price on each line
+     */
+    public CarPricePrediction(Path csv) throws IOException {
+        this(Dataset.readCsv(csv));
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] lineData = line.split(",");
+    /**
+     * As above, but read from the binary cache file if it is up to date, and
+     * otherwise write it for next time; see Dataset::load.
+     */
+    public CarPricePrediction(Path csv, Path cache) throws IOException {
+        this(Dataset.load(csv, cache));
+    }
 
-                if (lineData.length != N_INPUTS + 1) {
-                    throw new RuntimeException("CarPricePrediction::load failed. A line in " +
-                            "the dataset did not contain the correct number of entries.");
-                }
+    public CarPricePrediction(Dataset dataset) {
+        this(dataset, Precision.DOUBLE);
+    }
 
-                double[] metrics = new double[N_INPUTS];
-                for (int i = 0; i < N_INPUTS; i++) {
-                    metrics[i] = Double.parseDouble(lineData[i]);
-                }
-                dataValues.add(metrics);
-                prices.add(Double.parseDouble(lineData[N_INPUTS]));
+    /**
+     * @param precision the precision of the stored features and the forward
+     *                  pass; in SINGLE, the features are copied to floats and
+     *                  the dataset's own array is not retained
+     */
+    public CarPricePrediction(Dataset dataset, Precision precision) {
+        if (dataset.inputs() != N_INPUTS) {
+            throw new IllegalArgumentException("CarPricePrediction requires a dataset of " +
+                    N_INPUTS + " inputs; it had " + dataset.inputs() + ".");
+        }
+        rows = dataset.rows();
+        prices = dataset.targets();
+        columns = null;
+        offHeapPrices = null;
+        if (precision == Precision.SINGLE) {
+            double[] source = dataset.features();
+            features = null;
+            singleFeatures = new float[source.length];
+            for (int i = 0; i < source.length; i++) {
+                singleFeatures[i] = (float) source[i];
             }
+        } else {
+            features = dataset.features();
+            singleFeatures = null;
+        }
+    }
+
+    /**
+     * Evaluate over an off-heap dataset, in DOUBLE precision. Each block of
+     * rows is copied from the buffers into a per-thread buffer and goes
+     * through the same forward pass as an on-heap dataset, so results are
+     * identical to it, and heap usage does not grow with the dataset, except
+     * for the cached hidden layer of prepare.
+     */
+    public CarPricePrediction(OffHeapDataset dataset) {
+        if (dataset.inputs() != N_INPUTS) {
+            throw new IllegalArgumentException("CarPricePrediction requires a dataset of " +
+                    N_INPUTS + " inputs; it had " + dataset.inputs() + ".");
         }
-        catch (Exception e) {
-            e.printStackTrace();
+        rows = dataset.rows();
+        features = null;
+        singleFeatures = null;
+        prices = null;
+        columns = new DoubleBuffer[N_INPUTS];
+        for (int j = 0; j < N_INPUTS; j++) {
+            columns[j] = dataset.column(j);
         }
+        offHeapPrices = dataset.targets();
+    }
+
+    public Precision precision() {
+        return singleFeatures != null ? Precision.SINGLE : Precision.DOUBLE;
+    }
+
+    static Path namedDataset(String dataset) {
+        if (Objects.equals("train", dataset)) return Paths.get("data/train.csv");
+        else if (Objects.equals("validation", dataset)) return Paths.get("data/validation.csv");
+        else if (Objects.equals("test", dataset)) return Paths.get("data/test.csv");
+        else throw new IllegalArgumentException("Must use either the 'train', 'validation' " +
+                "or 'test' dataset only. Argument was '" + dataset + ".'");
     }
 
     /**
@@ -61,35 +147,155 @@ public class CarPricePrediction implements Problem {
      */
     @Override
     public double[][] bounds() {
-        double[][] bounds = new double[N_PARAMETERS][2];
-        double[] boundDims = {-10.0, 10.0};
-        for (int i = 0; i < N_PARAMETERS; i++) {
-            bounds[i] = boundDims;
-        }
-        return bounds;
+        return LIMITS.toArray();
+    }
+
+    @Override
+    public Bounds limits() {
+        return LIMITS;
     }
 
     @Override
     public boolean validates(double[] params) {
-        if (params.length != N_PARAMETERS) return false;
-        double[][] bounds = bounds();
-        for (int i = 0; i < N_PARAMETERS; i++) {
-            if (params[i] < bounds[i][0] || params[i] > bounds[i][1]) {
-                return false;
+        return LIMITS.contains(params);
+    }
+
+    /**
+     * Mean squared error of the network over the dataset. Rows are processed
+     * in blocks: the hidden layer of a whole block is computed as a
+     * matrix-vector product over the column-major features, whose unit-stride
+     * inner loop the JIT compiles to SIMD instructions.
+     */
+    @Override
+    public double evaluate(double[] params) {
+        Workspace workspace = WORKSPACE.get();
+        double sse = 0.0;
+        for (int from = 0; from < rows; from += TILE_ROWS) {
+            int n = Math.min(rows - from, TILE_ROWS);
+            if (columns != null) stage(from, n, workspace);
+            sse = accumulateTile(params, from, n, workspace, sse);
+        }
+        return sse / rows;
+    }
+
+    /**
+     * Evaluates all candidates in one pass over the dataset: each block of
+     * rows is loaded once and applied to every candidate before moving on,
+     * rather than streaming the whole dataset through the cache once per
+     * candidate. Results are identical to evaluate.
+     */
+    @Override
+    public void evaluateBatch(double[][] candidates, int from, int to, double[] out) {
+        Workspace workspace = WORKSPACE.get();
+        Arrays.fill(out, from, to, 0.0);
+        for (int first = 0; first < rows; first += TILE_ROWS) {
+            int n = Math.min(rows - first, TILE_ROWS);
+            if (columns != null) stage(first, n, workspace);
+            for (int c = from; c < to; c++) {
+                out[c] = accumulateTile(candidates[c], first, n, workspace, out[c]);
             }
         }
-        return true;
+        for (int c = from; c < to; c++) {
+            out[c] /= rows;
+        }
     }
 
     @Override
-    public double evaluate(double[] params) {
-        double mse = 0.0;
-        for (int i = 0; i < dataValues.size(); i++) {
-            double prediction = predict(dataValues.get(i), params);
-            mse += Math.pow(prices.get(i) - prediction, 2.0);
+    public int samples() {
+        return rows;
+    }
+
+    /**
+     * Mean squared error over the given rows only. The selected rows are
+     * gathered a block at a time into a contiguous buffer, which then goes
+     * through the same forward pass as evaluate.
+     */
+    @Override
+    public void evaluateBatch(double[][] candidates, int from, int to,
+                              int[] samples, int sampleFrom, int sampleTo, double[] out) {
+        Workspace workspace = WORKSPACE.get();
+        Arrays.fill(out, from, to, 0.0);
+        for (int first = sampleFrom; first < sampleTo; first += TILE_ROWS) {
+            int n = Math.min(sampleTo - first, TILE_ROWS);
+            for (int r = 0; r < n; r++) {
+                int row = samples[first + r];
+                if (singleFeatures != null) {
+                    for (int j = 0; j < N_INPUTS; j++) {
+                        workspace.singleFeatures[j * TILE_ROWS + r] = singleFeatures[j * rows + row];
+                    }
+                } else if (columns != null) {
+                    for (int j = 0; j < N_INPUTS; j++) {
+                        workspace.features[j * TILE_ROWS + r] = columns[j].get(row);
+                    }
+                } else {
+                    for (int j = 0; j < N_INPUTS; j++) {
+                        workspace.features[j * TILE_ROWS + r] = features[j * rows + row];
+                    }
+                }
+                workspace.prices[r] = prices != null ? prices[row] : offHeapPrices.get(row);
+            }
+            for (int c = from; c < to; c++) {
+                out[c] = singleFeatures != null
+                        ? accumulateError(candidates[c], workspace.singleFeatures, TILE_ROWS,
+                                workspace.prices, 0, n, workspace, out[c])
+                        : accumulateError(candidates[c], workspace.features, TILE_ROWS,
+                                workspace.prices, 0, n, workspace.activations, out[c]);
+            }
+        }
+        for (int c = from; c < to; c++) {
+            out[c] /= sampleTo - sampleFrom;
+        }
+    }
+
+    /**
+     * Keeps the hidden layer pre-activations of every row, so that a change to
+     * one hidden weight or bias costs a single column update of that unit, and
+     * a change to the output layer no hidden layer work at all. The cached
+     * pre-activations are always double, so in SINGLE precision the results
+     * match evaluate only up to float rounding.
+     */
+    @Override
+    public Evaluation prepare(double[] solution) {
+        if (solution.length != N_PARAMETERS) {
+            throw new IllegalArgumentException("CarPricePrediction::prepare argument must be of " +
+                    "length " + N_PARAMETERS + "; it was " + solution.length + ".");
+        }
+        return new HiddenLayerEvaluation(solution);
+    }
+
+    /**
+     * Counted in passes over a column of rows: a hidden unit with more than
+     * half its input weights changed is recomputed, one input and one bias
+     * shift per changed weight otherwise, and the output layer always.
+     */
+    @Override
+    public double changeCost(int from, int to) {
+        if (from < 0 || to > N_PARAMETERS || from > to) {
+            throw new IllegalArgumentException("CarPricePrediction::changeCost range [" + from +
+                    ", " + to + ") is not within [0, " + N_PARAMETERS + ").");
+        }
+        int passes = OUTPUT_PASSES;
+        for (int i = 0; i < HIDDEN_LAYER_SIZE; i++) {
+            int changes = Math.max(0, Math.min(to, (i + 1) * N_INPUTS) - Math.max(from, i * N_INPUTS));
+            boolean bias = from <= N_WEIGHTS + i && N_WEIGHTS + i < to;
+            if (changes > N_INPUTS / 2) passes += N_INPUTS + 1;
+            else if (changes > 0 || bias) passes += changes + 1;
+        }
+        return (double) passes / (HIDDEN_LAYER_SIZE * (N_INPUTS + 1) + OUTPUT_PASSES);
+    }
+
+    private double[] acquireHiddenLayer() {
+        synchronized (hiddenLayers) {
+            double[] buffer = hiddenLayers.poll();
+            if (buffer != null) return buffer;
+        }
+        return new double[HIDDEN_LAYER_SIZE * rows];
+    }
+
+    private void releaseHiddenLayer(double[] buffer) {
+        synchronized (hiddenLayers) {
+            if (hiddenLayers.size() < POOLED_HIDDEN_LAYERS) hiddenLayers.push(buffer);
         }
-        mse /= dataValues.size();
-        return mse;
     }
 
     /**
@@ -100,44 +306,280 @@ public class CarPricePrediction implements Problem {
      */
     @Override
     public double[] generate() {
-        double[] candidate = new double[dimensions()];
-        for (int i = 0; i < dimensions(); i++) {
-            candidate[i] = bounds()[i][0]
-                    + (PSOData.RANDOM.nextDouble() * (bounds()[i][1] - bounds()[i][0]));
-        }
+        return generate(PSOData.RANDOM);
+    }
+
+    @Override
+    public double[] generate(RandomGenerator random) {
+        double[] candidate = randomSolution(random);
         if (validates(candidate)) return candidate;
         else throw new RuntimeException("CarPricePrediction::generate produced an " +
                 "invalid candidate solution.");
     }
 
+    // a solution drawn uniformly from LIMITS
+    static double[] randomSolution(RandomGenerator random) {
+        double[] candidate = new double[N_PARAMETERS];
+        for (int i = 0; i < N_PARAMETERS; i++) {
+            candidate[i] = LIMITS.min(i) + (random.nextDouble() * LIMITS.range(i));
+        }
+        return candidate;
+    }
+
     @Override
     public int dimensions() {
         return N_PARAMETERS;
     }
 
-    private static double predict(double[] input, double[] params) {
-        int weightPos = 0;
-        int biasPos = N_WEIGHTS;
-        double[] hiddenLayerValues = new double[HIDDEN_LAYER_SIZE];
+    // sum of the squared errors of n rows starting at from, where the value of input j
+    // for row r is data[j * stride + r] and its price targets[r]
+    static double sumSquaredErrors(double[] params, double[] data, int stride, double[] targets,
+                                   int from, int n) {
+        double[] activations = WORKSPACE.get().activations;
+        double sse = 0.0;
+        for (int first = from; first < from + n; first += TILE_ROWS) {
+            sse = accumulateError(params, data, stride, targets, first,
+                    Math.min(from + n - first, TILE_ROWS), activations, sse);
+        }
+        return sse;
+    }
+
+    // adds the squared errors of n rows starting at from to sse, from whichever storage
+    // is in use; off-heap rows must have been staged
+    private double accumulateTile(double[] params, int from, int n, Workspace workspace, double sse) {
+        if (columns != null) {
+            return accumulateError(params, workspace.features, TILE_ROWS, workspace.prices, 0, n,
+                    workspace.activations, sse);
+        }
+        if (singleFeatures != null) {
+            return accumulateError(params, singleFeatures, rows, prices, from, n, workspace, sse);
+        }
+        return accumulateError(params, features, rows, prices, from, n, workspace.activations, sse);
+    }
+
+    // copies n rows of the off-heap dataset starting at from into the workspace
+    private void stage(int from, int n, Workspace workspace) {
+        for (int j = 0; j < N_INPUTS; j++) {
+            columns[j].get(from, workspace.features, j * TILE_ROWS, n);
+        }
+        offHeapPrices.get(from, workspace.prices, 0, n);
+    }
+
+    // adds the squared errors of n rows starting at from to sse, where the value of
+    // input j for row r is data[j * stride + r] and its price targets[r]
+    private static double accumulateError(double[] params, double[] data, int stride,
+                                          double[] targets, int from, int n,
+                                          double[] activations, double sse) {
         for (int i = 0; i < HIDDEN_LAYER_SIZE; i++) {
-            double weightedSum = params[biasPos];
-            biasPos++;
+            int offset = i * TILE_ROWS;
+            Arrays.fill(activations, offset, offset + n, params[N_WEIGHTS + i]);
             for (int j = 0; j < N_INPUTS; j++) {
-                weightedSum += input[j] * params[weightPos];
-                weightPos++;
+                double weight = params[i * N_INPUTS + j];
+                int column = j * stride + from;
+                for (int r = 0; r < n; r++) {
+                    activations[offset + r] += data[column + r] * weight;
+                }
+            }
+        }
+
+        int outputWeights = HIDDEN_LAYER_SIZE * N_INPUTS;
+        double outputBias = params[N_WEIGHTS + HIDDEN_LAYER_SIZE];
+        for (int r = 0; r < n; r++) {
+            double output = outputBias;
+            for (int i = 0; i < HIDDEN_LAYER_SIZE; i++) {
+                output += relu(activations[i * TILE_ROWS + r]) * params[outputWeights + i];
+            }
+            double error = targets[from + r] - output;
+            sse += error * error;
+        }
+        return sse;
+    }
+
+    private final class HiddenLayerEvaluation implements Evaluation {
+
+        private final double[] params;
+        // the pre-activation of hidden unit i for row r is preActivations[i * rows + r];
+        // both buffers are pooled, and null once released
+        private double[] preActivations;
+        private final double fitness;
+        // scratch space for scoring changes
+        private final double[] changedParams = new double[N_PARAMETERS];
+        private double[] shifted;
+        private final double[][] hidden = new double[HIDDEN_LAYER_SIZE][];
+
+        private HiddenLayerEvaluation(double[] solution) {
+            params = solution.clone();
+            preActivations = acquireHiddenLayer();
+            shifted = acquireHiddenLayer();
+            for (int i = 0; i < HIDDEN_LAYER_SIZE; i++) {
+                computeUnit(params, i, preActivations);
+                hidden[i] = preActivations;
+            }
+            // in DOUBLE precision, the same operations in the same order as evaluate,
+            // so the same result
+            fitness = squaredError(params) / rows;
+        }
+
+        @Override
+        public double fitness() {
+            return fitness;
+        }
+
+        @Override
+        public double delta(int index, double value) {
+            if (index < 0 || index >= N_PARAMETERS) {
+                throw new IllegalArgumentException("CarPricePrediction::delta index must be in " +
+                        "[0, " + N_PARAMETERS + "); it was " + index + ".");
+            }
+            System.arraycopy(params, 0, changedParams, 0, N_PARAMETERS);
+            changedParams[index] = value;
+            return scoreChange() - fitness;
+        }
+
+        @Override
+        public double evaluateChange(double[] changed, int from, int to) {
+            if (from < 0 || to > N_PARAMETERS || from > to) {
+                throw new IllegalArgumentException("CarPricePrediction::evaluateChange range [" +
+                        from + ", " + to + ") is not within [0, " + N_PARAMETERS + ").");
             }
-            hiddenLayerValues[i] = relu(weightedSum);
+            System.arraycopy(params, 0, changedParams, 0, N_PARAMETERS);
+            System.arraycopy(changed, from, changedParams, from, to - from);
+            return scoreChange();
+        }
+
+        @Override
+        public void release() {
+            if (preActivations == null) return;
+            releaseHiddenLayer(preActivations);
+            releaseHiddenLayer(shifted);
+            preActivations = shifted = null;
+        }
+
+        // fitness of changedParams: hidden units whose inputs did not change reuse the
+        // cached pre-activations, lightly changed ones are shifted and others recomputed
+        private double scoreChange() {
+            if (preActivations == null) {
+                throw new IllegalStateException("CarPricePrediction evaluation used after release.");
+            }
+            for (int i = 0; i < HIDDEN_LAYER_SIZE; i++) {
+                int changes = 0;
+                for (int j = 0; j < N_INPUTS; j++) {
+                    if (changedParams[i * N_INPUTS + j] != params[i * N_INPUTS + j]) changes++;
+                }
+                double bias = changedParams[N_WEIGHTS + i] - params[N_WEIGHTS + i];
+                if (changes == 0 && bias == 0.0) {
+                    hidden[i] = preActivations;
+                    continue;
+                }
+                hidden[i] = shifted;
+                if (changes > N_INPUTS / 2) {
+                    computeUnit(changedParams, i, shifted);
+                    continue;
+                }
+                int offset = i * rows;
+                for (int r = 0; r < rows; r++) {
+                    shifted[offset + r] = preActivations[offset + r] + bias;
+                }
+                for (int j = 0; j < N_INPUTS; j++) {
+                    double weight = changedParams[i * N_INPUTS + j] - params[i * N_INPUTS + j];
+                    if (weight != 0.0) addColumn(j, weight, shifted, offset);
+                }
+            }
+            return squaredError(changedParams) / rows;
+        }
+
+        // pre-activations of hidden unit i for every row into target[i * rows...]
+        private void computeUnit(double[] p, int i, double[] target) {
+            int offset = i * rows;
+            Arrays.fill(target, offset, offset + rows, p[N_WEIGHTS + i]);
+            for (int j = 0; j < N_INPUTS; j++) {
+                addColumn(j, p[i * N_INPUTS + j], target, offset);
+            }
+        }
+
+        // adds input j of every row, times weight, to target[offset...]
+        private void addColumn(int j, double weight, double[] target, int offset) {
+            int column = j * rows;
+            if (singleFeatures != null) {
+                for (int r = 0; r < rows; r++) {
+                    target[offset + r] += singleFeatures[column + r] * weight;
+                }
+            } else if (columns != null) {
+                DoubleBuffer values = columns[j];
+                for (int r = 0; r < rows; r++) {
+                    target[offset + r] += values.get(r) * weight;
+                }
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    target[offset + r] += features[column + r] * weight;
+                }
+            }
+        }
+
+        private double squaredError(double[] p) {
+            int outputWeights = HIDDEN_LAYER_SIZE * N_INPUTS;
+            double outputBias = p[N_WEIGHTS + HIDDEN_LAYER_SIZE];
+            double sse = 0.0;
+            for (int r = 0; r < rows; r++) {
+                double output = outputBias;
+                for (int i = 0; i < HIDDEN_LAYER_SIZE; i++) {
+                    output += relu(hidden[i][i * rows + r]) * p[outputWeights + i];
+                }
+                double error = (prices != null ? prices[r] : offHeapPrices.get(r)) - output;
+                sse += error * error;
+            }
+            return sse;
+        }
+    }
+
+    // as above, over float inputs: the hidden layer is computed in float and the
+    // output layer and error in double
+    private static double accumulateError(double[] params, float[] data, int stride,
+                                          double[] targets, int from, int n,
+                                          Workspace workspace, double sse) {
+        float[] weights = workspace.singleWeights;
+        float[] activations = workspace.singleActivations;
+        for (int i = 0; i < N_PARAMETERS; i++) {
+            weights[i] = (float) params[i];
         }
-        double output = params[biasPos];
         for (int i = 0; i < HIDDEN_LAYER_SIZE; i++) {
-            output += hiddenLayerValues[i] * params[weightPos];
-            weightPos++;
+            int offset = i * TILE_ROWS;
+            Arrays.fill(activations, offset, offset + n, weights[N_WEIGHTS + i]);
+            for (int j = 0; j < N_INPUTS; j++) {
+                float weight = weights[i * N_INPUTS + j];
+                int column = j * stride + from;
+                for (int r = 0; r < n; r++) {
+                    activations[offset + r] += data[column + r] * weight;
+                }
+            }
         }
-        return output;
+
+        int outputWeights = HIDDEN_LAYER_SIZE * N_INPUTS;
+        double outputBias = params[N_WEIGHTS + HIDDEN_LAYER_SIZE];
+        for (int r = 0; r < n; r++) {
+            double output = outputBias;
+            for (int i = 0; i < HIDDEN_LAYER_SIZE; i++) {
+                output += relu(activations[i * TILE_ROWS + r]) * params[outputWeights + i];
+            }
+            double error = targets[from + r] - output;
+            sse += error * error;
+        }
+        return sse;
     }
 
     // rectified linear unit activation function
     private static double relu (double value) {
         return value < 0 ? 0 : value;
     }
+
+    // per-thread buffers for the forward pass, so that evaluation allocates nothing
+    // and a single instance can be evaluated from several threads
+    private static class Workspace {
+        private final double[] activations = new double[HIDDEN_LAYER_SIZE * TILE_ROWS];
+        private final double[] features = new double[N_INPUTS * TILE_ROWS];
+        private final double[] prices = new double[TILE_ROWS];
+        private final float[] singleActivations = new float[HIDDEN_LAYER_SIZE * TILE_ROWS];
+        private final float[] singleFeatures = new float[N_INPUTS * TILE_ROWS];
+        private final float[] singleWeights = new float[N_PARAMETERS];
+    }
 }
@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The complete state of a solver run between two iterations: every
+ * particle's position, velocity and pBest, gBest, the run's counters, the
+ * random number generator's state and the fitness history. Written by
+ * BasePSO::setCheckpoint and read back by BasePSO::resume.
+ *
+ * The file is a small header followed by little-endian doubles, with the
+ * particle matrices stored row by row, and then by a little-endian int per
+ * particle recording where a particle occupies several places in the
+ * population. Random streams are restored from a seed drawn when the
+ * checkpoint is taken, with which the checkpointed run also continues, so a
+ * resumed run is identical to it. It is written a block at a time alongside
+ * and then atomically moved into place, so a crash mid-write leaves the
+ * previous checkpoint intact, and read a window at a time, so its size is
+ * limited only by that of the particle arrays.
+ */
+public final class Checkpoint {
+
+    private static final int MAGIC = 0x50534f43; // "PSOC"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+    private static final int COUNTER_BYTES = 56;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long MAP_WINDOW_BYTES = 1L << 30;
+
+    final int dimensions;
+    final int size;
+    final int iterations;
+    final int stagnantIterations;
+    final long evaluations;
+    final long runEvaluations;
+    final long elapsedNanos;
+    final long randomSeed;
+    final double stagnationBest;
+    final double gBestFitness;
+    final double[] gBest;
+    // row-major: particle p's value for dimension i is at [p * dimensions + i]
+    final double[] positions;
+    final double[] velocities;
+    final double[] pBests;
+    final double[] pBestFitness;
+    final double[] history;
+    // particle p is the same particle as particle aliases[p] <= p; set by the solver
+    final int[] aliases;
+
+    Checkpoint(int dimensions, int size, int iterations, int stagnantIterations, long evaluations,
+               long runEvaluations, long elapsedNanos, long randomSeed, double stagnationBest,
+               double gBestFitness, double[] history) {
+        if ((long) size * dimensions > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Checkpoint of " + size + " particles of " + dimensions +
+                    " dimensions has too many values for an array.");
+        }
+        this.dimensions = dimensions;
+        this.size = size;
+        this.iterations = iterations;
+        this.stagnantIterations = stagnantIterations;
+        this.evaluations = evaluations;
+        this.runEvaluations = runEvaluations;
+        this.elapsedNanos = elapsedNanos;
+        this.randomSeed = randomSeed;
+        this.stagnationBest = stagnationBest;
+        this.gBestFitness = gBestFitness;
+        this.gBest = new double[dimensions];
+        this.positions = new double[size * dimensions];
+        this.velocities = new double[size * dimensions];
+        this.pBests = new double[size * dimensions];
+        this.pBestFitness = new double[size];
+        this.history = history;
+        this.aliases = new int[size];
+    }
+
+    /**
+     * @return the number of iterations completed when the checkpoint was taken
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the fitness of gBest when the checkpoint was taken
+     */
+    public double getBestFitness() {
+        return gBestFitness;
+    }
+
+    public static Checkpoint read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES + COUNTER_BYTES) {
+                throw new IOException("Checkpoint::read " + file + " is not a checkpoint file.");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER_BYTES + COUNTER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Checkpoint::read " + file + " is not a checkpoint file.");
+            }
+            int dimensions = header.getInt();
+            int size = header.getInt();
+            int historyLength = header.getInt();
+            header.getInt();
+            if (dimensions < 1 || size < 1 || historyLength < 0
+                    || (long) size * dimensions > Integer.MAX_VALUE
+                    || channel.size() != bytes(dimensions, size, historyLength)) {
+                throw new IOException("Checkpoint::read " + file + " is truncated or corrupt.");
+            }
+
+            Checkpoint checkpoint = new Checkpoint(dimensions, size, header.getInt(), header.getInt(),
+                    header.getLong(), header.getLong(), header.getLong(), header.getLong(),
+                    header.getDouble(), header.getDouble(), new double[historyLength]);
+            long position = HEADER_BYTES + COUNTER_BYTES;
+            for (double[] values : checkpoint.arrays()) {
+                position = readDoubles(channel, position, values);
+            }
+            channel.map(FileChannel.MapMode.READ_ONLY, position, (long) size * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer()
+                    .get(checkpoint.aliases);
+            for (int p = 0; p < size; p++) {
+                int alias = checkpoint.aliases[p];
+                if (alias < 0 || alias > p || checkpoint.aliases[alias] != alias) {
+                    throw new IOException("Checkpoint::read " + file + " is truncated or corrupt.");
+                }
+            }
+            return checkpoint;
+        }
+    }
+
+    void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(size)
+                    .putInt(history.length).putInt(0);
+            buffer.putInt(iterations).putInt(stagnantIterations).putLong(evaluations)
+                    .putLong(runEvaluations).putLong(elapsedNanos).putLong(randomSeed)
+                    .putDouble(stagnationBest).putDouble(gBestFitness);
+            for (double[] values : arrays()) {
+                int written = 0;
+                while (written < values.length) {
+                    if (buffer.remaining() < Double.BYTES) drain(channel, buffer);
+                    int n = Math.min(values.length - written, buffer.remaining() / Double.BYTES);
+                    buffer.asDoubleBuffer().put(values, written, n);
+                    buffer.position(buffer.position() + n * Double.BYTES);
+                    written += n;
+                }
+            }
+            int written = 0;
+            while (written < size) {
+                if (buffer.remaining() < Integer.BYTES) drain(channel, buffer);
+                int n = Math.min(size - written, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(aliases, written, n);
+                buffer.position(buffer.position() + n * Integer.BYTES);
+                written += n;
+            }
+            drain(channel, buffer);
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    private static long readDoubles(FileChannel channel, long position, double[] destination)
+            throws IOException {
+        int copied = 0;
+        while (copied < destination.length) {
+            long length = Math.min(MAP_WINDOW_BYTES, (long) (destination.length - copied) * Double.BYTES);
+            DoubleBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asDoubleBuffer();
+            int n = window.remaining();
+            window.get(destination, copied, n);
+            copied += n;
+            position += length;
+        }
+        return position;
+    }
+
+    // the arrays in file order
+    private double[][] arrays() {
+        return new double[][] {gBest, positions, velocities, pBests, pBestFitness, history};
+    }
+
+    private static long bytes(int dimensions, int size, int historyLength) {
+        long doubles = dimensions + 3L * size * dimensions + size + historyLength;
+        return HEADER_BYTES + COUNTER_BYTES + doubles * Double.BYTES + (long) size * Integer.BYTES;
+    }
+}
@@ -0,0 +1,436 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A numeric dataset of rows whose last column is the target value and whose
+ * other columns are inputs. Inputs are stored column-major: the value of
+ * input j for row r is features()[j * rows() + r].
+ *
+ * Datasets are read from CSV files with a streaming parser which works on
+ * raw bytes, or from a binary columnar cache file which is memory-mapped and
+ * copied in bulk. OffHeapDataset maps the cache file without copying it.
+ */
+public final class Dataset {
+
+    private static final int CACHE_MAGIC = 0x50534f44; // "PSOD"
+    private static final int CACHE_VERSION = 1;
+    private static final int CACHE_HEADER_BYTES = 24;
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+    // largest region mapped at once; a multiple of Double.BYTES
+    private static final long MAP_WINDOW_BYTES = 1L << 30;
+
+    private final int rows;
+    private final int inputs;
+    private final double[] features;
+    private final double[] targets;
+
+    public Dataset(int rows, int inputs, double[] features, double[] targets) {
+        if (features.length != (long) rows * inputs || targets.length != rows) {
+            throw new IllegalArgumentException("Dataset arrays do not match " + rows + " rows of " +
+                    inputs + " inputs.");
+        }
+        this.rows = rows;
+        this.inputs = inputs;
+        this.features = features;
+        this.targets = targets;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int inputs() {
+        return inputs;
+    }
+
+    public double[] features() {
+        return features;
+    }
+
+    public double[] targets() {
+        return targets;
+    }
+
+    /**
+     * Load a CSV file, reusing the cache file if it is at least as new as the
+     * CSV, and otherwise parsing the CSV and (re)writing the cache.
+     *
+     * @param csv the CSV file
+     * @param cache the binary cache file for it
+     * @return the dataset
+     */
+    public static Dataset load(Path csv, Path cache) throws IOException {
+        if (Files.exists(cache)
+                && Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(csv)) >= 0) {
+            return readCache(cache);
+        }
+        Dataset dataset = readCsv(csv);
+        dataset.writeCache(cache);
+        return dataset;
+    }
+
+    /**
+     * Parse a CSV file of numbers in which every line has the same number of
+     * entries. The file is read in large blocks and numbers are parsed
+     * directly from the bytes, without creating a String per line or entry.
+     *
+     * @param csv the CSV file
+     * @return the dataset
+     */
+    public static Dataset readCsv(Path csv) throws IOException {
+        int columns = -1;
+        int rows = 0;
+        double[] values = new double[1 << 12];
+        int count = 0;
+
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            byte[] bytes = buffer.array();
+            boolean eof = false;
+            while (!eof) {
+                if (!buffer.hasRemaining()) {
+                    // a single line longer than the buffer
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                    bytes = buffer.array();
+                }
+                eof = channel.read(buffer) < 0;
+                int limit = buffer.position();
+                if (eof && limit > 0 && bytes[limit - 1] != '\n') {
+                    bytes[limit] = '\n';
+                    limit++;
+                }
+
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (bytes[i] != '\n') continue;
+                    int lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+                    if (lineEnd > lineStart) {
+                        int entries = 1;
+                        for (int k = lineStart; k < lineEnd; k++) {
+                            if (bytes[k] == ',') entries++;
+                        }
+                        if (columns == -1) {
+                            columns = entries;
+                        } else if (entries != columns) {
+                            throw new IllegalArgumentException("Dataset::readCsv line " + (rows + 1) +
+                                    " of " + csv + " has " + entries + " entries; expected " +
+                                    columns + ".");
+                        }
+                        if (count + entries > values.length) {
+                            values = Arrays.copyOf(values, Math.max(values.length * 2, count + entries));
+                        }
+                        parseLine(bytes, lineStart, lineEnd, values, count);
+                        count += entries;
+                        rows++;
+                    }
+                    lineStart = i + 1;
+                }
+                buffer.position(lineStart);
+                buffer.limit(limit);
+                buffer.compact();
+            }
+        }
+
+        if (columns < 2) {
+            throw new IllegalArgumentException("Dataset::readCsv " + csv + " does not contain " +
+                    "any rows with inputs and a target.");
+        }
+        int inputs = columns - 1;
+        double[] features = new double[rows * inputs];
+        double[] targets = new double[rows];
+        for (int r = 0; r < rows; r++) {
+            int row = r * columns;
+            for (int j = 0; j < inputs; j++) {
+                features[j * rows + r] = values[row + j];
+            }
+            targets[r] = values[row + inputs];
+        }
+        return new Dataset(rows, inputs, features, targets);
+    }
+
+    // parses the comma separated numbers in bytes[from, to) into values[offset...]
+    private static void parseLine(byte[] bytes, int from, int to, double[] values, int offset) {
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && bytes[i] != ',') continue;
+            values[offset++] = NumberParser.parseDouble(bytes, start, i);
+            start = i + 1;
+        }
+    }
+
+    /**
+     * Read a binary cache file written by writeCache. The file is
+     * memory-mapped and its columns copied in bulk.
+     *
+     * @param cache the cache file
+     * @return the dataset
+     */
+    public static Dataset readCache(Path cache) throws IOException {
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            long[] shape = readCacheHeader(channel, cache);
+            int inputs = (int) shape[0];
+            long rows = shape[1];
+            if (rows * inputs > Integer.MAX_VALUE) {
+                throw new IOException("Dataset::readCache " + cache + " has too many values for " +
+                        "an array; use OffHeapDataset::map.");
+            }
+
+            double[] features = new double[(int) (rows * inputs)];
+            double[] targets = new double[(int) rows];
+            long position = readDoubles(channel, CACHE_HEADER_BYTES, features);
+            readDoubles(channel, position, targets);
+            return new Dataset((int) rows, inputs, features, targets);
+        }
+    }
+
+    /**
+     * Validate the header of a cache file against the file's size.
+     *
+     * @return the number of inputs and of rows
+     */
+    static long[] readCacheHeader(FileChannel channel, Path cache) throws IOException {
+        if (channel.size() < CACHE_HEADER_BYTES) {
+            throw new IOException("Dataset::readCacheHeader " + cache + " is not a dataset cache file.");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, CACHE_HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt() != CACHE_MAGIC || header.getInt() != CACHE_VERSION) {
+            throw new IOException("Dataset::readCacheHeader " + cache + " is not a dataset cache file.");
+        }
+        int inputs = header.getInt();
+        header.getInt();
+        long rows = header.getLong();
+        if (inputs < 0 || rows < 0 || rows > Integer.MAX_VALUE
+                || channel.size() != cacheBytes(inputs, rows)) {
+            throw new IOException("Dataset::readCacheHeader " + cache + " is truncated or corrupt.");
+        }
+        return new long[] {inputs, rows};
+    }
+
+    // offset of column j of a cache file, where column inputs is the targets
+    static long cacheOffset(long rows, int j) {
+        return CACHE_HEADER_BYTES + rows * j * Double.BYTES;
+    }
+
+    private static long cacheBytes(int inputs, long rows) {
+        return cacheOffset(rows, inputs + 1);
+    }
+
+    private static long readDoubles(FileChannel channel, long position, double[] destination)
+            throws IOException {
+        int copied = 0;
+        while (copied < destination.length) {
+            long length = Math.min(MAP_WINDOW_BYTES, (long) (destination.length - copied) * Double.BYTES);
+            DoubleBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asDoubleBuffer();
+            int n = window.remaining();
+            window.get(destination, copied, n);
+            copied += n;
+            position += length;
+        }
+        return position;
+    }
+
+    /**
+     * Write the dataset as a binary columnar cache file: a small header
+     * followed by each input column and then the targets, as little-endian
+     * doubles. The file is written alongside and then atomically moved into
+     * place, so a partially written cache is never read.
+     *
+     * @param cache the cache file
+     */
+    public void writeCache(Path cache) throws IOException {
+        Path temporary = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(CACHE_MAGIC).putInt(CACHE_VERSION).putInt(inputs).putInt(0).putLong(rows);
+            writeDoubles(channel, buffer, features);
+            writeDoubles(channel, buffer, targets);
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+        Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeDoubles(FileChannel channel, ByteBuffer buffer, double[] source)
+            throws IOException {
+        int written = 0;
+        while (written < source.length) {
+            if (buffer.remaining() < Double.BYTES) {
+                buffer.flip();
+                while (buffer.hasRemaining()) channel.write(buffer);
+                buffer.clear();
+            }
+            int n = Math.min(source.length - written, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().put(source, written, n);
+            buffer.position(buffer.position() + n * Double.BYTES);
+            written += n;
+        }
+    }
+
+    /**
+     * Parses decimal numbers from ASCII bytes. Numbers of up to 19 significant
+     * digits with moderate exponents are converted with the Eisel-Lemire
+     * algorithm, which is exact; anything else falls back to Double::parseDouble.
+     */
+    static final class NumberParser {
+
+        private static final int MIN_POWER = -342;
+        private static final int MAX_POWER = 308;
+        // 128-bit approximations of 5^q for q in [MIN_POWER, MAX_POWER], as high/low pairs
+        private static final long[] POWERS_OF_FIVE = powersOfFive();
+
+        private NumberParser() {
+        }
+
+        static double parseDouble(byte[] bytes, int from, int to) {
+            int i = from;
+            boolean negative = false;
+            if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+                negative = bytes[i] == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int digitsStart = i;
+            int digit;
+            while (i < to && (digit = bytes[i] - '0') >= 0 && digit <= 9) {
+                mantissa = mantissa * 10 + digit;
+                i++;
+            }
+            int digits = i - digitsStart;
+            int exponent = 0;
+            if (i < to && bytes[i] == '.') {
+                int fractionStart = ++i;
+                while (i < to && (digit = bytes[i] - '0') >= 0 && digit <= 9) {
+                    mantissa = mantissa * 10 + digit;
+                    i++;
+                }
+                exponent = fractionStart - i;
+                digits += i - fractionStart;
+            }
+            if (digits > 0 && i < to && (bytes[i] == 'e' || bytes[i] == 'E')) {
+                int j = i + 1;
+                boolean negativeExponent = false;
+                if (j < to && (bytes[j] == '-' || bytes[j] == '+')) {
+                    negativeExponent = bytes[j] == '-';
+                    j++;
+                }
+                if (j < to && bytes[j] >= '0' && bytes[j] <= '9') {
+                    int explicit = 0;
+                    for (; j < to && (digit = bytes[j] - '0') >= 0 && digit <= 9; j++) {
+                        if (explicit < 100000) explicit = explicit * 10 + digit;
+                    }
+                    exponent += negativeExponent ? -explicit : explicit;
+                    i = j;
+                }
+            }
+            if (digits == 0 || i != to || (digits > 19 && significantDigits(bytes, digitsStart, to) > 19)) {
+                return fallback(bytes, from, to);
+            }
+
+            double value;
+            if (mantissa == 0) {
+                value = 0.0;
+            } else {
+                long bits = eiselLemire(mantissa, exponent);
+                if (bits < 0) return fallback(bytes, from, to);
+                value = Double.longBitsToDouble(bits);
+            }
+            return negative ? -value : value;
+        }
+
+        // digits of the mantissa starting at from, ignoring leading zeros
+        private static int significantDigits(byte[] bytes, int from, int to) {
+            int count = 0;
+            for (int i = from; i < to && bytes[i] != 'e' && bytes[i] != 'E'; i++) {
+                if (bytes[i] == '.' || (count == 0 && bytes[i] == '0')) continue;
+                count++;
+            }
+            return count;
+        }
+
+        // the bits of the double nearest mantissa * 10^exponent, or -1 if this
+        // cannot be determined here
+        private static long eiselLemire(long mantissa, int exponent) {
+            if (exponent < MIN_POWER || exponent > MAX_POWER) return -1;
+            int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+            long w = mantissa << leadingZeros;
+            int index = 2 * (exponent - MIN_POWER);
+
+            long high = unsignedMultiplyHigh(w, POWERS_OF_FIVE[index]);
+            long low = w * POWERS_OF_FIVE[index];
+            if ((high & 0x1FF) == 0x1FF) {
+                long secondHigh = unsignedMultiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+                low += secondHigh;
+                if (Long.compareUnsigned(secondHigh, low) > 0) high++;
+                if (low == -1L && (exponent < -27 || exponent > 55)) return -1;
+            }
+
+            int upperBit = (int) (high >>> 63);
+            int shift = upperBit + 9;
+            long result = high >>> shift;
+            int power2 = (((152170 + 65536) * exponent) >> 16) + 63 + upperBit - leadingZeros + 1023;
+            if (power2 <= 0) return -1; // subnormal
+
+            if ((low == 0 || low == 1) && exponent >= -4 && exponent <= 23 && (result & 3) == 1
+                    && (result << shift) == high) {
+                result &= ~1L; // exactly halfway: round to even
+            }
+            result += result & 1;
+            result >>>= 1;
+            if (result >= (2L << 52)) {
+                result = 1L << 52;
+                power2++;
+            }
+            result &= ~(1L << 52);
+            if (power2 >= 0x7FF) return 0x7FFL << 52;
+            return result | ((long) power2 << 52);
+        }
+
+        private static long unsignedMultiplyHigh(long x, long y) {
+            return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+        }
+
+        private static double fallback(byte[] bytes, int from, int to) {
+            return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+        }
+
+        private static long[] powersOfFive() {
+            java.math.BigInteger two128 = java.math.BigInteger.ONE.shiftLeft(128);
+            java.math.BigInteger two127 = java.math.BigInteger.ONE.shiftLeft(127);
+            long[] table = new long[2 * (MAX_POWER - MIN_POWER + 1)];
+            for (int q = MIN_POWER; q <= MAX_POWER; q++) {
+                java.math.BigInteger value;
+                if (q < 0) {
+                    java.math.BigInteger power = java.math.BigInteger.valueOf(5).pow(-q);
+                    int z = power.subtract(java.math.BigInteger.ONE).bitLength();
+                    int b = q >= -27 ? z + 127 : 2 * z + 128;
+                    value = java.math.BigInteger.ONE.shiftLeft(b).divide(power).add(java.math.BigInteger.ONE);
+                } else {
+                    value = java.math.BigInteger.valueOf(5).pow(q);
+                    while (value.compareTo(two127) < 0) value = value.shiftLeft(1);
+                }
+                while (value.compareTo(two128) >= 0) value = value.shiftRight(1);
+                int index = 2 * (q - MIN_POWER);
+                table[index] = value.shiftRight(64).longValue();
+                table[index + 1] = value.longValue();
+            }
+            return table;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * A Problem which can score a small change to a solution more cheaply than
+ * evaluating the changed solution from scratch, by keeping intermediate
+ * results of evaluating the original (e.g. a network's hidden layer).
+ */
+public interface IncrementalProblem extends Problem {
+
+    /**
+     * Evaluate the solution, keeping whatever is needed to score changes to it.
+     *
+     * @param solution the solution, which is copied
+     * @return its evaluation
+     */
+    Evaluation prepare(double[] solution);
+
+    /**
+     * Estimated cost of Evaluation::evaluateChange over coordinates from to
+     * to - 1, as a fraction of the cost of a full evaluation, which prepare
+     * costs about the same as. Preparing a solution to score n changes to it
+     * pays only when one plus the changes' costs is less than n, the cost of
+     * evaluating each changed solution in full.
+     *
+     * @param from the first changed coordinate
+     * @param to the coordinate after the last changed one
+     * @return the relative cost, in [0, 1]
+     */
+    double changeCost(int from, int to);
+
+    /**
+     * The evaluation of one solution. Not safe for concurrent use.
+     */
+    interface Evaluation {
+
+        /**
+         * @return the fitness of the prepared solution, as given by evaluate
+         */
+        double fitness();
+
+        /**
+         * Change in fitness if a single coordinate of the prepared solution
+         * were set to value. Equal to evaluate of the changed solution minus
+         * fitness(), up to rounding.
+         *
+         * @param index the coordinate
+         * @param value its new value
+         * @return the change in fitness
+         */
+        double delta(int index, double value);
+
+        /**
+         * Fitness of the solution equal to changed at coordinates from to
+         * to - 1 and to the prepared solution elsewhere, up to rounding.
+         *
+         * @param changed the new values of the coordinates
+         * @param from the first changed coordinate
+         * @param to the coordinate after the last changed one
+         * @return the fitness of the changed solution
+         */
+        double evaluateChange(double[] changed, int from, int to);
+
+        /**
+         * Hand this evaluation's buffers back to the problem for a later
+         * prepare to reuse. The evaluation must not be used afterwards.
+         */
+        default void release() {
+        }
+    }
+}
@@ -0,0 +1,284 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Island-model PSO. Several independent solvers (islands), each running in
+ * its own worker process, search the same problem and periodically send
+ * their best solution to their neighbours in a Topology over TCP.
+ *
+ * The model is the coordinator: workers register with it, receive their
+ * configuration, and report their final best back to it. Workers are either
+ * launched by the model on this machine over loopback (runLocal), or started
+ * separately on any machine with
+ *
+ *   java -cp &lt;classpath&gt; IslandWorker &lt;coordinator host&gt; &lt;coordinator port&gt;
+ *
+ * once the model is waiting for them (run).
+ */
+public class IslandModel {
+
+    // messages of the coordinator and migration protocols
+    static final int HELLO = 1;
+    static final int CONFIG = 2;
+    static final int RESULT = 3;
+    static final int MIGRANT = 4;
+
+    private static final int REGISTRATION_TIMEOUT_MILLIS = 60_000;
+    private static final int EXIT_TIMEOUT_MILLIS = 60_000;
+
+    public enum Launch {
+        /** one JVM per island */
+        PROCESS,
+        /** one thread per island in this JVM, still communicating over sockets */
+        THREAD
+    }
+
+    private final int islands;
+    private final String dataset;
+    private String solver = "base";
+    private Topology topology = Topology.RING;
+    private int migrationInterval = 10;
+    private int runTime = PSOData.DEFAULT_FUNCTION_EVALUATIONS;
+    private double[] best;
+    private double bestFitness = Double.NaN;
+    private double[] islandFitness;
+    private long evaluations;
+
+    /**
+     * @param islands the number of islands
+     * @param dataset path of the CarPricePrediction CSV file, as seen by the workers
+     */
+    public IslandModel(int islands, String dataset) {
+        if (islands < 1) {
+            throw new IllegalArgumentException("IslandModel requires at least one island; it was " +
+                    "given " + islands + ".");
+        }
+        this.islands = islands;
+        this.dataset = dataset;
+    }
+
+    /**
+     * @param solver "base" for BasePSO islands or "novel" for NovelPSO islands
+     */
+    public void setSolver(String solver) {
+        if (!"base".equals(solver) && !"novel".equals(solver)) {
+            throw new IllegalArgumentException("IslandModel::setSolver argument must be 'base' or " +
+                    "'novel'; it was '" + solver + "'.");
+        }
+        this.solver = solver;
+    }
+
+    public void setTopology(Topology topology) {
+        this.topology = topology;
+    }
+
+    public void setMigrationInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("IslandModel::setMigrationInterval argument must be " +
+                    "> 0; it was " + interval);
+        }
+        migrationInterval = interval;
+    }
+
+    public void setRunTime(int runTime) {
+        if (runTime < 1) {
+            throw new IllegalArgumentException("IslandModel::setRunTime argument must be > 0; it was " +
+                    runTime);
+        }
+        this.runTime = runTime;
+    }
+
+    /**
+     * Launch every island on this machine, connected over loopback, and wait
+     * for them all to finish. If coordination fails, island processes are
+     * destroyed; the failures of islands themselves, whether an island
+     * thread's exception or a process's non-zero exit status, are thrown, or
+     * added as suppressed to the coordination failure.
+     */
+    public void runLocal(Launch launch) throws IOException, InterruptedException {
+        try (ServerSocket control = new ServerSocket(0, islands, InetAddress.getLoopbackAddress())) {
+            String host = control.getInetAddress().getHostAddress();
+            String port = String.valueOf(control.getLocalPort());
+            List<Process> processes = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            List<IOException> failures = Collections.synchronizedList(new ArrayList<>());
+            for (int i = 0; i < islands; i++) {
+                if (launch == Launch.PROCESS) {
+                    String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+                    processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                            "IslandWorker", host, port).inheritIO().start());
+                } else {
+                    String name = "island-" + i;
+                    Thread thread = new Thread(() -> {
+                        try {
+                            IslandWorker.run(host, Integer.parseInt(port));
+                        } catch (IOException | RuntimeException e) {
+                            failures.add(new IOException("IslandModel::runLocal " + name + " failed.", e));
+                        }
+                    }, name);
+                    thread.setDaemon(true);
+                    thread.start();
+                    threads.add(thread);
+                }
+            }
+            try {
+                coordinate(control);
+            } catch (IOException | RuntimeException e) {
+                for (Process process : processes) {
+                    process.destroyForcibly();
+                }
+                try {
+                    awaitIslands(processes, threads, failures, false);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                for (IOException failure : failures) {
+                    e.addSuppressed(failure);
+                }
+                throw e;
+            }
+            awaitIslands(processes, threads, failures, true);
+            if (!failures.isEmpty()) {
+                IOException failure = failures.get(0);
+                for (IOException other : failures.subList(1, failures.size())) {
+                    failure.addSuppressed(other);
+                }
+                throw failure;
+            }
+        }
+    }
+
+    // waits a bounded time for the islands to exit, destroying processes which do not and
+    // adding a failure for each island which did not exit, or with checkStatus, exited
+    // with a non-zero status
+    private static void awaitIslands(List<Process> processes, List<Thread> threads,
+                                     List<IOException> failures, boolean checkStatus)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(EXIT_TIMEOUT_MILLIS);
+        for (Process process : processes) {
+            if (!process.waitFor(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                process.destroyForcibly();
+                failures.add(new IOException("IslandModel::runLocal island process " + process.pid() +
+                        " did not exit."));
+            } else if (checkStatus && process.exitValue() != 0) {
+                failures.add(new IOException("IslandModel::runLocal island process " + process.pid() +
+                        " exited with status " + process.exitValue() + "."));
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            if (thread.isAlive()) {
+                failures.add(new IOException("IslandModel::runLocal " + thread.getName() +
+                        " did not finish."));
+            }
+        }
+    }
+
+    /**
+     * Wait on the given port for the islands to register, then coordinate
+     * them until they have all finished.
+     */
+    public void run(int port) throws IOException {
+        try (ServerSocket control = new ServerSocket(port, islands)) {
+            coordinate(control);
+        }
+    }
+
+    private void coordinate(ServerSocket control) throws IOException {
+        best = null;
+        bestFitness = Double.NaN;
+        islandFitness = null;
+        evaluations = 0;
+        Socket[] workers = new Socket[islands];
+        try {
+            DataInputStream[] in = new DataInputStream[islands];
+            DataOutputStream[] out = new DataOutputStream[islands];
+            String[] hosts = new String[islands];
+            int[] ports = new int[islands];
+
+            control.setSoTimeout(REGISTRATION_TIMEOUT_MILLIS);
+            for (int i = 0; i < islands; i++) {
+                workers[i] = control.accept();
+                in[i] = new DataInputStream(workers[i].getInputStream());
+                out[i] = new DataOutputStream(workers[i].getOutputStream());
+                expect(in[i], HELLO);
+                hosts[i] = in[i].readUTF();
+                ports[i] = in[i].readInt();
+            }
+
+            for (int i = 0; i < islands; i++) {
+                out[i].writeInt(CONFIG);
+                out[i].writeInt(i);
+                out[i].writeUTF(solver);
+                out[i].writeUTF(dataset);
+                out[i].writeInt(runTime);
+                out[i].writeInt(migrationInterval);
+                int[] neighbours = topology.neighbours(i, islands);
+                out[i].writeInt(neighbours.length);
+                for (int neighbour : neighbours) {
+                    out[i].writeUTF(hosts[neighbour]);
+                    out[i].writeInt(ports[neighbour]);
+                }
+                out[i].flush();
+            }
+
+            islandFitness = new double[islands];
+            for (int i = 0; i < islands; i++) {
+                expect(in[i], RESULT);
+                islandFitness[i] = in[i].readDouble();
+                double[] solution = new double[in[i].readInt()];
+                for (int j = 0; j < solution.length; j++) {
+                    solution[j] = in[i].readDouble();
+                }
+                evaluations += in[i].readLong();
+                if (best == null || islandFitness[i] < bestFitness) {
+                    best = solution;
+                    bestFitness = islandFitness[i];
+                }
+            }
+        } finally {
+            for (Socket worker : workers) {
+                if (worker != null) worker.close();
+            }
+        }
+    }
+
+    static void expect(DataInputStream in, int message) throws IOException {
+        int received = in.readInt();
+        if (received != message) {
+            throw new IOException("IslandModel expected message " + message + " but received " +
+                    received + ".");
+        }
+    }
+
+    public double[] getBest() {
+        return best;
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * @return the final best fitness of each island, by island number
+     */
+    public double[] getIslandFitness() {
+        return islandFitness;
+    }
+
+    /**
+     * @return the total number of fitness evaluations made by all islands
+     */
+    public long getEvaluationCount() {
+        return evaluations;
+    }
+}
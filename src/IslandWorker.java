@@ -0,0 +1,274 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One island of an IslandModel: registers with the coordinator, runs the
+ * configured solver with migration to and from its neighbours, and reports
+ * its best solution back.
+ */
+public class IslandWorker {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: IslandWorker <coordinator host> <coordinator port>");
+            System.exit(2);
+        }
+        run(args[0], Integer.parseInt(args[1]));
+    }
+
+    public static void run(String coordinatorHost, int coordinatorPort) throws IOException {
+        try (Socket control = new Socket(coordinatorHost, coordinatorPort);
+             ServerSocket inbound = new ServerSocket(0)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(control.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(control.getOutputStream()));
+            out.writeInt(IslandModel.HELLO);
+            out.writeUTF(control.getLocalAddress().getHostAddress());
+            out.writeInt(inbound.getLocalPort());
+            out.flush();
+
+            IslandModel.expect(in, IslandModel.CONFIG);
+            in.readInt(); // island number
+            String solverName = in.readUTF();
+            String dataset = in.readUTF();
+            int runTime = in.readInt();
+            int interval = in.readInt();
+            String[] hosts = new String[in.readInt()];
+            int[] ports = new int[hosts.length];
+            for (int i = 0; i < hosts.length; i++) {
+                hosts[i] = in.readUTF();
+                ports[i] = in.readInt();
+            }
+
+            Problem problem = new CarPricePrediction(Paths.get(dataset));
+            BasePSO solver = "novel".equals(solverName) ? new NovelPSO(problem) : new BasePSO(problem);
+            solver.setRunTime(runTime);
+            try (SocketMigration migration = new SocketMigration(inbound, interval,
+                    problem.dimensions(), hosts, ports)) {
+                solver.setMigration(migration);
+                solver.solve();
+            }
+
+            out.writeInt(IslandModel.RESULT);
+            out.writeDouble(solver.getBestFitness());
+            out.writeInt(solver.getBest().length);
+            for (double value : solver.getBest()) {
+                out.writeDouble(value);
+            }
+            out.writeLong(solver.getEvaluationCount());
+            out.flush();
+        }
+    }
+
+    /**
+     * Migration over TCP. Migrants from other islands are read on background
+     * threads into an inbox which exchange drains. Outgoing migrants are
+     * handed to a sender thread per neighbour, which connects on first use
+     * and writes only the latest migrant, dropping any it had no time to
+     * send; so exchange never waits on the network. A neighbour which cannot
+     * be reached (e.g. because it has already finished) is skipped and
+     * retried with the next migrant. A connection which sends anything but
+     * migrants of the problem's dimensions is dropped.
+     */
+    static class SocketMigration implements Migration, Closeable {
+        private static final int CONNECT_TIMEOUT_MILLIS = 1_000;
+
+        private final ServerSocket inbound;
+        private final int interval;
+        private final int dimensions;
+        private final Sender[] senders;
+        private final Queue<Migrant> inbox = new ConcurrentLinkedQueue<>();
+        private final Queue<Socket> incoming = new ConcurrentLinkedQueue<>();
+        private volatile boolean closed;
+
+        SocketMigration(ServerSocket inbound, int interval, int dimensions, String[] hosts, int[] ports) {
+            this.inbound = inbound;
+            this.interval = interval;
+            this.dimensions = dimensions;
+            this.senders = new Sender[hosts.length];
+            for (int i = 0; i < hosts.length; i++) {
+                senders[i] = new Sender(hosts[i], ports[i]);
+                Thread sender = new Thread(senders[i], "migration-sender");
+                sender.setDaemon(true);
+                sender.start();
+            }
+            Thread acceptor = new Thread(this::accept, "migration-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        @Override
+        public int interval() {
+            return interval;
+        }
+
+        @Override
+        public List<Migrant> exchange(double[] best, double fitness) {
+            Migrant emigrant = new Migrant(best.clone(), fitness);
+            for (Sender sender : senders) {
+                sender.offer(emigrant);
+            }
+
+            List<Migrant> immigrants = new ArrayList<>();
+            Migrant immigrant;
+            while ((immigrant = inbox.poll()) != null) {
+                immigrants.add(immigrant);
+            }
+            return immigrants;
+        }
+
+        private void accept() {
+            try {
+                while (true) {
+                    Socket socket = inbound.accept();
+                    incoming.add(socket);
+                    Thread reader = new Thread(() -> read(socket), "migration-reader");
+                    reader.setDaemon(true);
+                    reader.start();
+                }
+            } catch (IOException e) {
+                // the server socket was closed
+            }
+        }
+
+        private void read(Socket socket) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (true) {
+                    IslandModel.expect(in, IslandModel.MIGRANT);
+                    int length = in.readInt();
+                    if (length != dimensions) {
+                        throw new IOException("IslandWorker received a migrant of " + length +
+                                " dimensions; expected " + dimensions + ".");
+                    }
+                    double[] position = new double[length];
+                    for (int i = 0; i < position.length; i++) {
+                        position[i] = in.readDouble();
+                    }
+                    inbox.add(new Migrant(position, in.readDouble()));
+                }
+            } catch (IOException e) {
+                // the sender has finished, or sent something other than a migrant
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            inbound.close();
+            for (Sender sender : senders) {
+                sender.close();
+            }
+            for (Socket socket : incoming) {
+                socket.close();
+            }
+        }
+
+        // sends the latest migrant offered to one neighbour, on its own thread
+        private final class Sender implements Runnable {
+            private final String host;
+            private final int port;
+            // next and socket are guarded by this; stream is only used by the sender
+            private Migrant next;
+            private Socket socket;
+            private DataOutputStream stream;
+
+            private Sender(String host, int port) {
+                this.host = host;
+                this.port = port;
+            }
+
+            private synchronized void offer(Migrant migrant) {
+                next = migrant;
+                notifyAll();
+            }
+
+            private synchronized Migrant take() throws InterruptedException {
+                while (next == null && !closed) {
+                    wait();
+                }
+                Migrant migrant = next;
+                next = null;
+                return migrant;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    Migrant migrant;
+                    while ((migrant = take()) != null && !closed) {
+                        send(migrant);
+                    }
+                } catch (InterruptedException e) {
+                    // closed
+                } finally {
+                    disconnect();
+                }
+            }
+
+            private void send(Migrant migrant) {
+                try {
+                    if (stream == null) {
+                        Socket connecting = new Socket();
+                        synchronized (this) {
+                            if (closed) return;
+                            socket = connecting;
+                        }
+                        connecting.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                        connecting.setTcpNoDelay(true);
+                        stream = new DataOutputStream(new BufferedOutputStream(connecting.getOutputStream()));
+                    }
+                    double[] position = migrant.getPosition();
+                    stream.writeInt(IslandModel.MIGRANT);
+                    stream.writeInt(position.length);
+                    for (double value : position) {
+                        stream.writeDouble(value);
+                    }
+                    stream.writeDouble(migrant.getFitness());
+                    stream.flush();
+                } catch (IOException e) {
+                    disconnect();
+                }
+            }
+
+            // wakes the sender, and unblocks any connect or write in progress, after which
+            // it disconnects
+            private void close() {
+                Socket current;
+                synchronized (this) {
+                    notifyAll();
+                    current = socket;
+                }
+                closeQuietly(current);
+            }
+
+            private void disconnect() {
+                Socket current;
+                synchronized (this) {
+                    current = socket;
+                    socket = null;
+                }
+                closeQuietly(current);
+                stream = null;
+            }
+
+            private void closeQuietly(Socket current) {
+                try {
+                    if (current != null) current.close();
+                } catch (IOException e) {
+                    // already unusable
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * The state of a solver at the end of one iteration. Immutable.
+ */
+public final class IterationSnapshot {
+
+    private final long run;
+    private final int iteration;
+    private final double[] best;
+    private final double bestFitness;
+    private final long evaluations;
+    private final long elapsedNanos;
+    private final long[] phaseNanos;
+    private final StopReason stopReason;
+
+    IterationSnapshot(long run, int iteration, double[] best, double bestFitness, long evaluations,
+                      long elapsedNanos, long[] phaseNanos, StopReason stopReason) {
+        this.run = run;
+        this.iteration = iteration;
+        this.best = best.clone();
+        this.bestFitness = bestFitness;
+        this.evaluations = evaluations;
+        this.elapsedNanos = elapsedNanos;
+        this.phaseNanos = phaseNanos;
+        this.stopReason = stopReason;
+    }
+
+    /**
+     * @return the id of the run, unique among the runs of every solver in
+     * this JVM, which tells snapshots of a solver's successive runs apart
+     */
+    public long getRun() {
+        return run;
+    }
+
+    /**
+     * @return the number of iterations completed in this run
+     */
+    public int getIteration() {
+        return iteration;
+    }
+
+    /**
+     * @return a copy of gBest
+     */
+    public double[] getBest() {
+        return best.clone();
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * @return the solver's total number of fitness evaluations
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return the time since the start of the run, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @param phase the phase
+     * @return the solver's total time spent in the phase, in nanoseconds
+     */
+    public long getPhaseNanos(SolverMetrics.Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return why the run is stopping, or null if this is not the last iteration
+     */
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    @Override
+    public String toString() {
+        return "iteration " + iteration + " => " + bestFitness + " (" + evaluations + " evaluations)";
+    }
+}
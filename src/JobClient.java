@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A client for a JobServer on the local machine.
+ */
+public class JobClient {
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final URI jobs;
+
+    /**
+     * @param port the port the server listens on
+     */
+    public JobClient(int port) {
+        jobs = URI.create("http://localhost:" + port + "/jobs/");
+    }
+
+    /**
+     * Submit a job.
+     *
+     * @param parameters the job's parameters, see JobServer.PARAMETERS
+     * @return the job's id
+     */
+    public long submit(Map<String, String> parameters) throws IOException, InterruptedException {
+        StringBuilder form = new StringBuilder();
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            if (form.length() > 0) form.append('&');
+            form.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8));
+        }
+        String response = send(HttpRequest.newBuilder(jobs)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form.toString())));
+        return Long.parseLong(field(response, "id"));
+    }
+
+    /**
+     * @return the job's status, as JSON
+     */
+    public String status(long id) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(jobs.resolve(Long.toString(id))).GET());
+    }
+
+    /**
+     * Cancel a queued or running job, or forget a finished one.
+     *
+     * @return the job's status, as JSON
+     */
+    public String cancel(long id) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(jobs.resolve(Long.toString(id))).DELETE());
+    }
+
+    /**
+     * Wait for a job to finish, polling its status.
+     *
+     * @param poll the time between polls
+     * @return its final status, as JSON
+     */
+    public String await(long id, Duration poll) throws IOException, InterruptedException {
+        while (true) {
+            String status = status(id);
+            String state = field(status, "state");
+            if (!"QUEUED".equals(state) && !"RUNNING".equals(state)) return status;
+            Thread.sleep(poll.toMillis());
+        }
+    }
+
+    private String send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IOException("JobClient " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    /**
+     * @param json a JSON object as returned by the server
+     * @param name a field holding a number, string or null
+     * @return the field's value, unquoted, or null if it is absent or null
+     */
+    public static String field(String json, String name) {
+        Matcher m = Pattern.compile("\"" + Pattern.quote(name) + "\":(\"((?:[^\"\\\\]|\\\\.)*)\"|[^,}\\]]+)")
+                .matcher(json);
+        if (!m.find() || "null".equals(m.group(1))) return null;
+        return m.group(2) != null ? m.group(2) : m.group(1);
+    }
+}
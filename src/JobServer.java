@@ -0,0 +1,570 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-running local server which solves CarPricePrediction jobs, so that
+ * many jobs share one warmed-up JVM and loaded datasets instead of paying
+ * for a fresh process each. It listens on the loopback interface only, with
+ * a small HTTP API whose requests are form-encoded and responses JSON:
+ *
+ *   POST   /jobs       submit a job; returns its id
+ *   GET    /jobs       every job's status
+ *   GET    /jobs/{id}  a job's status and progress, and its result once finished
+ *   DELETE /jobs/{id}  cancel a queued or running job, or forget a finished one
+ *   GET    /datasets   the datasets loaded
+ *
+ * A job names a dataset ("train", "validation", "test" or the path of a
+ * CSV file within the server's data directory, relative to it), a solver
+ * ("base" or "novel") and optionally a priority and the solver's parameters;
+ * see PARAMETERS. Datasets are loaded on first use and the most recently
+ * used DATASET_CACHE_SIZE kept, and a CSV file modified since it was loaded
+ * is loaded again in place of the old copy.
+ *
+ * At most a fixed number of jobs run at once, by default one per core.
+ * Queued jobs start in order of priority, highest first, and then of
+ * submission. Each job runs on a thread of its own, a virtual thread on
+ * JVMs which have them and a platform thread otherwise. Finished jobs are
+ * kept until deleted.
+ *
+ * Without TCP_NODELAY small responses wait on delayed ACKs, some 40 ms a
+ * request, so run the server with -Dsun.net.httpserver.nodelay=true, as
+ * Main's serve command does.
+ */
+public class JobServer implements AutoCloseable {
+
+    /** the parameters a job may set */
+    public static final Set<String> PARAMETERS = Set.of("dataset", "precision", "solver",
+            "priority", "runTime", "populationSize", "socialCoeff", "cognitiveCoeff", "seed",
+            "flatStorage", "evaluationBudget", "timeLimitMillis", "targetFitness", "crossOverRate",
+            "mutateRate", "tournamentSize", "evaluateOffspring");
+
+    /** the number of loaded datasets kept, least recently used dropped first */
+    public static final int DATASET_CACHE_SIZE = 8;
+
+    private final HttpServer server;
+    private final ThreadFactory threads = jobThreadFactory();
+    private final ExecutorService requests = Executors.newCachedThreadPool(threads);
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+    private final Semaphore slots;
+    private final Thread scheduler;
+    private final Map<Long, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final Path dataDirectory;
+    // guarded by itself
+    private final Map<String, CompletableFuture<CarPricePrediction>> datasets =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<CarPricePrediction>> eldest) {
+                    return size() > DATASET_CACHE_SIZE;
+                }
+            };
+
+    /**
+     * @param port the port to listen on, or 0 for any free port
+     */
+    public JobServer(int port) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors(), Paths.get("data"));
+    }
+
+    /**
+     * @param port the port to listen on, or 0 for any free port
+     * @param concurrentJobs the number of jobs which may run at once
+     * @param dataDirectory the directory holding the datasets jobs may name
+     */
+    public JobServer(int port, int concurrentJobs, Path dataDirectory) throws IOException {
+        if (concurrentJobs < 1) {
+            throw new IllegalArgumentException("JobServer concurrentJobs must be > 0; it was " +
+                    concurrentJobs);
+        }
+        this.dataDirectory = dataDirectory.toRealPath();
+        slots = new Semaphore(concurrentJobs);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/jobs", this::handleJobs);
+        server.createContext("/datasets", this::handleDatasets);
+        server.setExecutor(requests);
+        scheduler = new Thread(this::schedule, "job-scheduler");
+        scheduler.setDaemon(true);
+    }
+
+    public void start() {
+        server.start();
+        scheduler.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting requests and starting jobs, and cancel the running ones.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.interrupt();
+        for (Job job : jobs.values()) {
+            job.cancel();
+        }
+        requests.shutdown();
+    }
+
+    // Thread.ofVirtual().factory() where it exists (Java 21), by reflection, since the
+    // build targets Java 17
+    private static ThreadFactory jobThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "job-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException |
+                 InvocationTargetException e) {
+            // no virtual threads, or (Java 19 and 20) not enabled
+            AtomicLong count = new AtomicLong();
+            return runnable -> {
+                Thread thread = new Thread(runnable, "job-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    // starts the highest priority queued job whenever a slot is free
+    private void schedule() {
+        try {
+            while (true) {
+                slots.acquire();
+                Job job = queue.take();
+                if (!job.start()) {
+                    slots.release();
+                    continue;
+                }
+                threads.newThread(() -> {
+                    try {
+                        job.run();
+                    } finally {
+                        slots.release();
+                    }
+                }).start();
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Queue a job.
+     *
+     * @param parameters the job's parameters, see PARAMETERS
+     * @return its id
+     */
+    public long submit(Map<String, String> parameters) throws IOException {
+        for (String name : parameters.keySet()) {
+            if (!PARAMETERS.contains(name)) {
+                throw new IllegalArgumentException("JobServer::submit unknown parameter '" + name +
+                        "'.");
+            }
+        }
+        String dataset = parameters.get("dataset");
+        if (dataset == null) {
+            throw new IllegalArgumentException("JobServer::submit requires a dataset.");
+        }
+        CarPricePrediction.Precision precision = CarPricePrediction.Precision.valueOf(
+                parameters.getOrDefault("precision", "double").toUpperCase());
+        BasePSO solver = createSolver(parameters, problem(dataset, precision));
+        int priority = Integer.parseInt(parameters.getOrDefault("priority", "0"));
+
+        Job job = new Job(ids.incrementAndGet(), priority, parameters.getOrDefault("solver", "base"),
+                dataset, solver);
+        jobs.put(job.id, job);
+        queue.add(job);
+        return job.id;
+    }
+
+    private static BasePSO createSolver(Map<String, String> parameters, Problem problem) {
+        String name = parameters.getOrDefault("solver", "base");
+        BasePSO solver;
+        if ("novel".equals(name)) {
+            NovelPSO novel = new NovelPSO(problem);
+            if (parameters.containsKey("crossOverRate")) {
+                novel.setCrossOverRate(Double.parseDouble(parameters.get("crossOverRate")));
+            }
+            if (parameters.containsKey("mutateRate")) {
+                novel.setMutateRate(Double.parseDouble(parameters.get("mutateRate")));
+            }
+            if (parameters.containsKey("tournamentSize")) {
+                novel.setTournamentSize(Integer.parseInt(parameters.get("tournamentSize")));
+            }
+            novel.setEvaluateOffspring(Boolean.parseBoolean(parameters.get("evaluateOffspring")));
+            solver = novel;
+        } else if ("base".equals(name)) {
+            solver = new BasePSO(problem);
+            solver.setFlatStorage(Boolean.parseBoolean(parameters.get("flatStorage")));
+        } else {
+            throw new IllegalArgumentException("JobServer solver must be 'base' or 'novel'; it was '" +
+                    name + "'.");
+        }
+        if (parameters.containsKey("runTime")) {
+            solver.setRunTime(Integer.parseInt(parameters.get("runTime")));
+        }
+        if (parameters.containsKey("populationSize")) {
+            solver.setPopulationSize(Integer.parseInt(parameters.get("populationSize")));
+        }
+        if (parameters.containsKey("socialCoeff")) {
+            solver.setSocialCoeff(Double.parseDouble(parameters.get("socialCoeff")));
+        }
+        if (parameters.containsKey("cognitiveCoeff")) {
+            solver.setCognitiveCoeff(Double.parseDouble(parameters.get("cognitiveCoeff")));
+        }
+        if (parameters.containsKey("seed")) {
+            solver.setSeed(Long.parseLong(parameters.get("seed")));
+        }
+        if (parameters.containsKey("evaluationBudget")) {
+            solver.setEvaluationBudget(Long.parseLong(parameters.get("evaluationBudget")));
+        }
+        if (parameters.containsKey("timeLimitMillis")) {
+            solver.setTimeLimit(Duration.ofMillis(Long.parseLong(parameters.get("timeLimitMillis"))));
+        }
+        if (parameters.containsKey("targetFitness")) {
+            solver.setTargetFitness(Double.parseDouble(parameters.get("targetFitness")));
+        }
+        return solver;
+    }
+
+    // the cached problem for a dataset, loading it if it is new or its file has changed,
+    // when the entry for the old file is dropped; concurrent requests for the same
+    // dataset share one load
+    private CarPricePrediction problem(String dataset, CarPricePrediction.Precision precision)
+            throws IOException {
+        Path csv = dataDirectory.resolve(Set.of("train", "validation", "test").contains(dataset)
+                ? dataset + ".csv"
+                : dataset).normalize();
+        boolean within = csv.startsWith(dataDirectory);
+        if (within) {
+            // a symbolic link may still lead out of it
+            csv = csv.toRealPath();
+            within = csv.startsWith(dataDirectory);
+        }
+        if (!within) {
+            throw new IllegalArgumentException("JobServer::submit dataset '" + dataset +
+                    "' is outside the data directory.");
+        }
+        String prefix = csv + "|" + precision + "|";
+        String key = prefix + Files.getLastModifiedTime(csv).toMillis();
+
+        CompletableFuture<CarPricePrediction> created = new CompletableFuture<>();
+        CompletableFuture<CarPricePrediction> loading;
+        synchronized (datasets) {
+            loading = datasets.putIfAbsent(key, created);
+        }
+        if (loading == null) {
+            loading = created;
+            try {
+                created.complete(new CarPricePrediction(Dataset.readCsv(csv), precision));
+                synchronized (datasets) {
+                    datasets.keySet().removeIf(k -> k.startsWith(prefix) && !k.equals(key));
+                }
+            } catch (IOException | RuntimeException e) {
+                synchronized (datasets) {
+                    datasets.remove(key, created);
+                }
+                created.completeExceptionally(e);
+            }
+        }
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * @param id a job's id
+     * @return the job, or null if there is none with that id
+     */
+    Job job(long id) {
+        return jobs.get(id);
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if ("/jobs".equals(path) || "/jobs/".equals(path)) {
+                if ("POST".equals(method)) {
+                    Map<String, String> parameters = parseForm(
+                            new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                    respond(exchange, 201, "{\"id\":" + submit(parameters) + "}");
+                } else if ("GET".equals(method)) {
+                    StringBuilder json = new StringBuilder("[");
+                    for (Job job : jobs.values()) {
+                        if (json.length() > 1) json.append(',');
+                        json.append(job.toJson(false));
+                    }
+                    respond(exchange, 200, json.append(']').toString());
+                } else {
+                    respond(exchange, 405, error("method " + method + " is not allowed"));
+                }
+                return;
+            }
+
+            Job job = null;
+            try {
+                job = jobs.get(Long.parseLong(path.substring("/jobs/".length())));
+            } catch (NumberFormatException e) {
+                // reported as not found
+            }
+            if (job == null) {
+                respond(exchange, 404, error("no job " + path));
+            } else if ("GET".equals(method)) {
+                respond(exchange, 200, job.toJson(true));
+            } else if ("DELETE".equals(method)) {
+                if (job.isFinished()) jobs.remove(job.id);
+                else if (job.cancel()) queue.remove(job);
+                respond(exchange, 200, job.toJson(false));
+            } else {
+                respond(exchange, 405, error("method " + method + " is not allowed"));
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (IOException | UncheckedIOException e) {
+            respond(exchange, 400, error(String.valueOf(e)));
+        }
+    }
+
+    private void handleDatasets(HttpExchange exchange) throws IOException {
+        List<Map.Entry<String, CompletableFuture<CarPricePrediction>>> entries;
+        synchronized (datasets) {
+            entries = new ArrayList<>(datasets.entrySet());
+        }
+        StringBuilder json = new StringBuilder("[");
+        for (Map.Entry<String, CompletableFuture<CarPricePrediction>> entry : entries) {
+            CarPricePrediction problem = entry.getValue().getNow(null);
+            if (problem == null) continue;
+            if (json.length() > 1) json.append(',');
+            String[] key = entry.getKey().split("\\|");
+            json.append("{\"path\":").append(quote(key[0])).append(",\"precision\":\"")
+                    .append(key[1]).append("\",\"rows\":").append(problem.samples()).append('}');
+        }
+        respond(exchange, 200, json.append(']').toString());
+    }
+
+    static Map<String, String> parseForm(String body) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : body.split("&")) {
+            if (pair.isEmpty()) continue;
+            int equals = pair.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("JobServer form field '" + pair + "' has no value.");
+            }
+            parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    static String quote(String text) {
+        if (text == null) return "null";
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    // JSON has no literals for infinities and NaN
+    private static String json(double value) {
+        return Double.isFinite(value) ? String.valueOf(value) : "null";
+    }
+
+    enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    /**
+     * One submitted job. Ordered for the queue by priority, highest first,
+     * then by id.
+     */
+    static final class Job implements Comparable<Job> {
+        private final long id;
+        private final int priority;
+        private final String solverName;
+        private final String dataset;
+        // released once the job finishes, keeping only its result
+        private BasePSO solver;
+        private State state = State.QUEUED;
+        private long startNanos;
+        private long endNanos;
+        private double[] best;
+        private double bestFitness = Double.NaN;
+        private long evaluations;
+        private int iterations;
+        private StopReason stopReason;
+        private String error;
+        // the latest progress of the running solver, whose own counters are only safe to read
+        // from its thread
+        private volatile IterationSnapshot progress;
+        private final ProgressListener listener = snapshot -> progress = snapshot;
+
+        Job(long id, int priority, String solverName, String dataset, BasePSO solver) {
+            this.id = id;
+            this.priority = priority;
+            this.solverName = solverName;
+            this.dataset = dataset;
+            this.solver = solver;
+            solver.getMetrics().addListener(listener);
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (priority != other.priority) return Integer.compare(other.priority, priority);
+            return Long.compare(id, other.id);
+        }
+
+        synchronized boolean start() {
+            if (state != State.QUEUED) return false;
+            state = State.RUNNING;
+            startNanos = System.nanoTime();
+            return true;
+        }
+
+        void run() {
+            BasePSO running;
+            synchronized (this) {
+                running = solver;
+            }
+            try {
+                running.solve();
+                finish(running, null);
+            } catch (RuntimeException e) {
+                finish(running, e);
+            } finally {
+                synchronized (this) {
+                    if (state == State.RUNNING) finish(running, new IllegalStateException("aborted"));
+                }
+            }
+        }
+
+        private synchronized void finish(BasePSO finished, RuntimeException failure) {
+            endNanos = System.nanoTime();
+            evaluations = finished.getEvaluationCount();
+            iterations = finished.getIterations();
+            stopReason = finished.getStopReason();
+            if (failure != null) {
+                state = State.FAILED;
+                error = String.valueOf(failure);
+            } else {
+                state = stopReason == StopReason.CANCELLED ? State.CANCELLED : State.SUCCEEDED;
+                best = finished.getBest();
+                bestFitness = finished.getBestFitness();
+            }
+            finished.getMetrics().removeListener(listener);
+            solver = null;
+        }
+
+        /**
+         * Cancel the job if it is queued or running.
+         *
+         * @return true if it was queued, and so will never run
+         */
+        synchronized boolean cancel() {
+            if (state == State.QUEUED) {
+                state = State.CANCELLED;
+                endNanos = startNanos = System.nanoTime();
+                solver.getMetrics().removeListener(listener);
+                solver = null;
+                return true;
+            }
+            if (state == State.RUNNING) solver.requestStop();
+            return false;
+        }
+
+        synchronized boolean isFinished() {
+            return state != State.QUEUED && state != State.RUNNING;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized String toJson(boolean withBest) {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"id\":").append(id)
+                    .append(",\"state\":\"").append(state).append('"')
+                    .append(",\"solver\":").append(quote(solverName))
+                    .append(",\"dataset\":").append(quote(dataset))
+                    .append(",\"priority\":").append(priority);
+            if (state == State.RUNNING) {
+                IterationSnapshot latest = progress;
+                json.append(",\"iteration\":").append(latest == null ? 0 : latest.getIteration())
+                        .append(",\"evaluations\":").append(latest == null ? 0 : latest.getEvaluations())
+                        .append(",\"bestFitness\":").append(json(latest == null ? Double.NaN : latest.getBestFitness()))
+                        .append(",\"seconds\":").append((System.nanoTime() - startNanos) / 1e9);
+            } else if (state != State.QUEUED) {
+                json.append(",\"iteration\":").append(iterations)
+                        .append(",\"evaluations\":").append(evaluations)
+                        .append(",\"bestFitness\":").append(json(bestFitness))
+                        .append(",\"seconds\":").append((endNanos - startNanos) / 1e9)
+                        .append(",\"stopReason\":").append(stopReason == null ? "null" : quote(stopReason.name()))
+                        .append(",\"error\":").append(quote(error));
+                if (withBest && best != null) {
+                    json.append(",\"best\":[");
+                    for (int i = 0; i < best.length; i++) {
+                        if (i > 0) json.append(',');
+                        json.append(json(best[i]));
+                    }
+                    json.append(']');
+                }
+            }
+            return json.append('}').toString();
+        }
+    }
+}
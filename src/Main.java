@@ -1,21 +1,68 @@
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Paths;
 
 public class Main {
     public static void main(String[] args) {
         try {
-            System.out.println("Running BasePSO:");
+            if (args.length >= 1 && "serve".equals(args[0])) {
+                serve(args.length > 1 ? Integer.parseInt(args[1]) : 0);
+                return;
+            }
             Problem problem = new CarPricePrediction("train");
+            if (args.length == 2 && "sweep".equals(args[0])) {
+                sweep(problem, args[1]);
+                return;
+            }
+
+            Problem validation = new CarPricePrediction("validation");
+            System.out.println("Running BasePSO:");
             BasePSO baseSolver = new BasePSO(problem);
-            baseSolver.solve();
-            System.out.println(baseSolver);
+            solve(baseSolver, validation);
 
             System.out.println("Running NovelPSO:");
             NovelPSO novelSolver = new NovelPSO(problem);
-            novelSolver.solve();
-            System.out.println(novelSolver);
+            solve(novelSolver, validation);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    // solves while scoring gBest on the validation set, stopping early if it stops improving
+    private static void solve(BasePSO solver, Problem validation) {
+        try (ValidationMonitor monitor = new ValidationMonitor(validation, 250, 0.0)) {
+            solver.setValidationMonitor(monitor);
+            solver.solve();
+            System.out.println(solver);
+            System.out.println(monitor);
+        }
+    }
+
+    // runs the job server until the process is killed, e.g. `Main serve 8080`
+    private static void serve(int port) throws IOException {
+        // read once, when the first HttpServer is created; see JobServer
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        try (JobServer server = new JobServer(port)) {
+            server.start();
+            System.out.println("Job server listening on http://localhost:" + server.getPort() + "/jobs");
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // a default grid around the default parameters, e.g. `Main sweep results.csv`
+    private static void sweep(Problem problem, String output) throws IOException {
+        Sweep sweep = new Sweep(problem);
+        sweep.setSocialCoeffs(0.25, 0.5, 1.0);
+        sweep.setCognitiveCoeffs(0.25, 0.5, 1.0);
+        sweep.setCrossOverRates(0.1, 0.25, 0.5);
+        sweep.setMutateRates(0.05, 0.1, 0.2);
+        sweep.setTournamentSizes(3, 6);
+        for (Sweep.Summary summary : sweep.run(Paths.get(output))) {
+            System.out.println(summary);
+        }
+    }
 }
@@ -0,0 +1,46 @@
+import java.util.List;
+
+/**
+ * Exchanges good solutions between a running solver and other solvers
+ * searching the same problem concurrently, e.g. the islands of an
+ * IslandModel.
+ */
+public interface Migration {
+
+    /**
+     * @return the number of iterations between exchanges
+     */
+    int interval();
+
+    /**
+     * Offer the solver's best solution to the other solvers and collect the
+     * solutions which have arrived from them since the last exchange. Must
+     * not wait for other solvers.
+     *
+     * @param best the solver's best solution
+     * @param fitness the fitness of best
+     * @return the solutions received, possibly none
+     */
+    List<Migrant> exchange(double[] best, double fitness);
+
+    /**
+     * A solution moving between solvers, with its fitness.
+     */
+    final class Migrant {
+        private final double[] position;
+        private final double fitness;
+
+        public Migrant(double[] position, double fitness) {
+            this.position = position;
+            this.fitness = fitness;
+        }
+
+        public double[] getPosition() {
+            return position;
+        }
+
+        public double getFitness() {
+            return fitness;
+        }
+    }
+}
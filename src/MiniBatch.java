@@ -0,0 +1,115 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Stochastic fitness mode for a SampledProblem. Each iteration, candidates
+ * are first scored on a mini-batch of samples, taken in turn from a shuffled
+ * order which is reshuffled once every sample has been used. Only candidates
+ * whose estimate suggests they may improve on their pBest (or on gBest, see
+ * Rescore) are then evaluated on the full set before being accepted.
+ */
+public class MiniBatch {
+
+    public enum Rescore {
+        /** re-score candidates which may beat their own pBest */
+        PERSONAL_BEST,
+        /** re-score only candidates which may beat the swarm's gBest */
+        GLOBAL_BEST
+    }
+
+    private final int size;
+    private final Rescore policy;
+    private final double margin;
+    private int[] order;
+    private int cursor;
+    private long sampledEvaluations;
+    private long fullEvaluations;
+    private long avoidedEvaluations;
+
+    public MiniBatch(int size) {
+        this(size, Rescore.PERSONAL_BEST, 0.0);
+    }
+
+    /**
+     * @param size the number of samples in each mini-batch
+     * @param policy which best a candidate must be estimated to beat to be re-scored
+     * @param margin relative slack added to that best to allow for sampling
+     *               noise, e.g. 0.1 re-scores estimates up to 10% worse than it
+     */
+    public MiniBatch(int size, Rescore policy, double margin) {
+        if (size < 1) {
+            throw new IllegalArgumentException("MiniBatch size must be > 0; it was " + size);
+        }
+        if (margin < 0) {
+            throw new IllegalArgumentException("MiniBatch margin must be non-negative; it was " +
+                    margin);
+        }
+        this.size = size;
+        this.policy = policy;
+        this.margin = margin;
+    }
+
+    /**
+     * Estimate the fitness of candidates[0] to candidates[count - 1] on the
+     * next mini-batch, reshuffling with random if every sample has been used.
+     */
+    void estimate(SampledProblem problem, double[][] candidates, int count, double[] out,
+                  RandomGenerator random) {
+        if (order == null || order.length != problem.samples()) {
+            order = new int[problem.samples()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            cursor = order.length;
+        }
+        int batchSize = Math.min(size, order.length);
+        if (cursor + batchSize > order.length) {
+            shuffle(random);
+            cursor = 0;
+        }
+        problem.evaluateBatch(candidates, 0, count, order, cursor, cursor + batchSize, out);
+        cursor += batchSize;
+        sampledEvaluations += count;
+    }
+
+    /**
+     * Decide whether a candidate's estimate is promising enough to pay for a
+     * full evaluation.
+     */
+    boolean shouldRescore(double estimate, double personalBest, double globalBest) {
+        double best = policy == Rescore.PERSONAL_BEST ? personalBest : globalBest;
+        if (estimate < best * (1.0 + margin)) {
+            fullEvaluations++;
+            return true;
+        }
+        avoidedEvaluations++;
+        return false;
+    }
+
+    private void shuffle(RandomGenerator random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+
+    public long getSampledEvaluations() {
+        return sampledEvaluations;
+    }
+
+    public long getFullEvaluations() {
+        return fullEvaluations;
+    }
+
+    /**
+     * @return the number of full passes over the samples which were avoided
+     */
+    public long getAvoidedEvaluations() {
+        return avoidedEvaluations;
+    }
+
+    @Override
+    public String toString() {
+        return "mini-batch estimates: " + sampledEvaluations + ", full evaluations: " +
+                fullEvaluations + ", full evaluations avoided: " + avoidedEvaluations;
+    }
+}
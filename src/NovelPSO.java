@@ -6,6 +6,7 @@ public class NovelPSO extends BasePSO {
     private double mutateRate;
     private int matingPoolScale;
     private int k;
+    private boolean evaluateOffspring = false;
 
     public NovelPSO(Problem problem) {
         super(problem);
@@ -37,33 +38,70 @@ public class NovelPSO extends BasePSO {
         matingPoolScale = scale;
     }
 
+    /**
+     * Score the positions of crossed-over and mutated offspring as soon as
+     * they are produced, so that one which improves on its pBest (or gBest)
+     * is ranked by it in the survivor selection. By default offspring are
+     * only scored after their next move. With an IncrementalProblem, the
+     * offspring of a parent are scored as changes to it when, by
+     * IncrementalProblem::changeCost, that costs less than evaluating each in
+     * full plus preparing the parent, typically for a parent with several
+     * mutated offspring; others are evaluated in full. With a surrogate,
+     * offspring it rules out are not scored.
+     *
+     * @param evaluate whether to score offspring
+     */
+    public void setEvaluateOffspring(boolean evaluate) {
+        evaluateOffspring = evaluate;
+    }
+
     @Override
-    public void solve() {
-        EvolvingParticleSwarm particleSwarm = new EvolvingParticleSwarm();
-        int ticks = runTime;
-        while (ticks > 0) {
-            particleSwarm.updatePopulation();
-            particleSwarm.evaluatePopulation();
-            record(particleSwarm.getGBest());
-            particleSwarm.evolvePopulation();
-            ticks--;
-        }
+    protected Swarm createSwarm() {
+        return new EvolvingParticleSwarm();
+    }
+
+    @Override
+    protected void iterate(Swarm particleSwarm) {
+        super.iterate(particleSwarm);
+        ((EvolvingParticleSwarm) particleSwarm).evolvePopulation();
     }
 
     class EvolvingParticleSwarm extends ParticleSwarm {
 
+        // offspring awaiting scoring, with the parent each changes at coordinates
+        // pendingRanges[2i] to pendingRanges[2i + 1] - 1
+        private final List<Particle> pendingOffspring = new ArrayList<>();
+        private final List<Particle> pendingParents = new ArrayList<>();
+        private int[] pendingRanges = new int[0];
+        // the parents of pending offspring, numbered in order of first appearance, with
+        // the number of pending offspring of each and the cost of scoring them as changes
+        private final Map<Particle, Integer> parentNumbers = new IdentityHashMap<>();
+        private int[] parentOf = new int[0];
+        private int[] offspringCounts = new int[0];
+        private double[] changeCosts = new double[0];
+        // buffers reused between generations
+        private final List<Particle> matingPool = new ArrayList<>();
+        private final List<Particle> offspring = new ArrayList<>();
+        private List<Particle> survivors = new ArrayList<>();
+        private double[] fitness = new double[0];
+        private int[] indices = new int[0];
+
         private boolean mutate() {
-            return PSOData.RANDOM.nextDouble() < mutateRate;
+            return random().nextDouble() < mutateRate;
         }
 
         private boolean crossOver() {
-            return PSOData.RANDOM.nextDouble() < crossOverRate;
+            return random().nextDouble() < crossOverRate;
         }
 
-        private void evolvePopulation() {
+        void evolvePopulation() {
+            SolverMetrics metrics = getMetrics();
+            long start = System.nanoTime();
             List<Particle> parents = selection();
-            List<Particle> offspring = new ArrayList<>();
-            Collections.shuffle(parents);
+            metrics.time(SolverMetrics.Phase.SELECTION, start);
+            start = System.nanoTime();
+            offspring.clear();
+            shuffle(parents);
 
             if (parents.size() % 2 != 0) {
                 parents.remove(parents.size() - 1);
@@ -72,14 +110,19 @@ public class NovelPSO extends BasePSO {
             for (int i = 0; i < parents.size(); i += 2) {
                 List<Particle> children = Arrays.asList(parents.get(i), parents.get(i + 1));
                 if (crossOver()) {
+                    int cutPoint = random().nextInt(problem.dimensions());
                     List<double[]> positions = blendedCrossOver(
                             children.get(0).getPosition(),
-                            children.get(1).getPosition());
+                            children.get(1).getPosition(), cutPoint);
 
-                    Particle offspringA = new Particle(
-                            positions.get(0), children.get(0).getPBest(), children.get(0).getVelocity());
-                    Particle offspringB = new Particle(
-                            positions.get(1), children.get(1).getPBest(), children.get(1).getVelocity());
+                    Particle offspringA = new Particle(positions.get(0), children.get(0).getPBest(),
+                            children.get(0).getVelocity(), children.get(0).getPBestFitness());
+                    Particle offspringB = new Particle(positions.get(1), children.get(1).getPBest(),
+                            children.get(1).getVelocity(), children.get(1).getPBestFitness());
+                    if (evaluateOffspring) {
+                        score(offspringA, children.get(0), cutPoint, problem.dimensions());
+                        score(offspringB, children.get(1), cutPoint, problem.dimensions());
+                    }
                     children.set(0, offspringA);
                     children.set(1, offspringB);
                 }
@@ -89,35 +132,128 @@ public class NovelPSO extends BasePSO {
                 }
                 offspring.addAll(children);
             }
+            scorePending();
+            metrics.time(SolverMetrics.Phase.CROSSOVER, start);
 
+            start = System.nanoTime();
+            List<Particle> previous = population;
             population = getNFittest(offspring, population.size());
+            survivors = previous;
+            metrics.time(SolverMetrics.Phase.SORT, start);
+        }
+
+        // Fisher-Yates, drawing from the run's stream rather than Collections::shuffle's own
+        private void shuffle(List<Particle> particles) {
+            for (int i = particles.size() - 1; i > 0; i--) {
+                Collections.swap(particles, i, random().nextInt(i + 1));
+            }
         }
 
         private List<Particle> selection() {
-            int pool = population.size() * matingPoolScale;
-            List<Particle> matingPool = new ArrayList<>(pool);
+            int size = population.size();
+            double[] fitness = fitnessOf(population);
+            int pool = size * matingPoolScale;
+            matingPool.clear();
             for (int i = 0; i < pool; i++) {
-                List<Particle> tournament = new ArrayList<>(k);
-                for (int j = 0; j < k; j++) {
-                    int pos = PSOData.RANDOM.nextInt(population.size());
-                    tournament.add(population.get(pos));
-                }
-                matingPool.add(getFittest(tournament));
+                matingPool.add(population.get(Selection.tournament(fitness, size, k, random())));
             }
             return matingPool;
         }
 
         private Particle mutation(Particle particle) {
-            double[] position = particle.getPosition();
-            int mutationIndex = PSOData.RANDOM.nextInt(problem.dimensions());
+            // scored offspring are changes to an unchanged parent, so leave it intact
+            double[] position = evaluateOffspring ? particle.getPosition().clone() : particle.getPosition();
+            int mutationIndex = random().nextInt(problem.dimensions());
             position[mutationIndex] =
-                    PSOData.RANDOM.nextDouble(problem.bounds()[mutationIndex][0], problem.bounds()[mutationIndex][1]);
-            return new Particle(position, particle.getPBest(), particle.getVelocity());
+                    random().nextDouble(limits().min(mutationIndex), limits().max(mutationIndex));
+            Particle offspring = new Particle(position, particle.getPBest(), particle.getVelocity(),
+                    particle.getPBestFitness());
+            if (evaluateOffspring) score(offspring, particle, mutationIndex, mutationIndex + 1);
+            return offspring;
+        }
+
+        // queues the offspring's position, which differs from its parent's only at
+        // coordinates from to to - 1, for scorePending
+        private void score(Particle offspring, Particle parent, int from, int to) {
+            double[] position = offspring.getPosition();
+            // "invisible wall" -- invalid positions are not evaluated
+            if (!problem.validates(position)) return;
+            if (!shouldEvaluate(position, offspring.getPBestFitness(), getGBestFitness())) return;
+            int n = pendingOffspring.size();
+            if (pendingRanges.length < 2 * (n + 1)) {
+                pendingRanges = Arrays.copyOf(pendingRanges, Math.max(64, 4 * (n + 1)));
+            }
+            pendingOffspring.add(offspring);
+            pendingParents.add(parent);
+            pendingRanges[2 * n] = from;
+            pendingRanges[2 * n + 1] = to;
+        }
+
+        // scores the pending offspring, those of each parent as changes to it if that is
+        // cheaper than evaluating them in full
+        private void scorePending() {
+            int n = pendingOffspring.size();
+            if (n == 0) return;
+            boolean incremental = problem instanceof IncrementalProblem;
+            int parents = 0;
+            if (incremental) {
+                if (parentOf.length < n) {
+                    parentOf = new int[n];
+                    offspringCounts = new int[n];
+                    changeCosts = new double[n];
+                }
+                for (int i = 0; i < n; i++) {
+                    Integer number = parentNumbers.putIfAbsent(pendingParents.get(i), parents);
+                    int p = number == null ? parents++ : number;
+                    if (number == null) {
+                        offspringCounts[p] = 0;
+                        changeCosts[p] = 0.0;
+                    }
+                    parentOf[i] = p;
+                    offspringCounts[p]++;
+                    changeCosts[p] += ((IncrementalProblem) problem).changeCost(
+                            pendingRanges[2 * i], pendingRanges[2 * i + 1]);
+                }
+            }
+
+            for (int i = 0; i < n; i++) {
+                if (pendingOffspring.get(i) == null) continue;
+                int p = incremental ? parentOf[i] : -1;
+                if (p < 0 || 1.0 + changeCosts[p] >= offspringCounts[p]) {
+                    double[] position = pendingOffspring.get(i).getPosition();
+                    update(pendingOffspring.get(i), evaluate(position));
+                    continue;
+                }
+                // every offspring of this parent, against one evaluation of it
+                IncrementalProblem.Evaluation base = prepare(pendingParents.get(i).getPosition());
+                for (int j = i; j < n; j++) {
+                    if (parentOf[j] != p || pendingOffspring.get(j) == null) continue;
+                    Particle offspring = pendingOffspring.get(j);
+                    update(offspring, evaluateChange(base, offspring.getPosition(),
+                            pendingRanges[2 * j], pendingRanges[2 * j + 1]));
+                    pendingOffspring.set(j, null);
+                }
+                base.release();
+            }
+            pendingOffspring.clear();
+            pendingParents.clear();
+            parentNumbers.clear();
+        }
+
+        // updates the offspring's pBest and gBest with its position's fitness if better
+        private void update(Particle offspring, double fitness) {
+            double[] position = offspring.getPosition();
+            learn(position, fitness);
+            if (fitness < offspring.getPBestFitness()) {
+                offspring.setPBest(position, fitness);
+            }
+            if (fitness < getGBestFitness()) {
+                setGBest(position, fitness);
+            }
         }
 
-        private List<double[]> blendedCrossOver(double[] parentA, double[] parentB) {
+        private List<double[]> blendedCrossOver(double[] parentA, double[] parentB, int cutPoint) {
             List<double[]> results = new ArrayList<>();
-            int cutPoint = PSOData.RANDOM.nextInt(problem.dimensions());
             double[] offspringA = new double[problem.dimensions()];
             double[] offspringB = new double[problem.dimensions()];
             
@@ -127,19 +263,19 @@ public class NovelPSO extends BasePSO {
             }
 
             for (int j = cutPoint; j < problem.dimensions(); j++) {
-                double[] origins = new double[] {parentA[j], parentB[j]};
-                Arrays.sort(origins);
+                double lower = Math.min(parentA[j], parentB[j]);
+                double upper = Math.max(parentA[j], parentB[j]);
 
-                double difference = origins[1] - origins[0];
+                double difference = upper - lower;
                 if (difference == 0.0) {
-                    origins[0] = problem.bounds()[j][0];
-                    origins[1] = problem.bounds()[j][1];
+                    lower = limits().min(j);
+                    upper = limits().max(j);
                 }
 
-                offspringA[j] = PSOData.RANDOM.nextDouble(
-                        origins[0] - 0.5 * difference, origins[1] + 0.5 * difference);
-                offspringB[j] = PSOData.RANDOM.nextDouble(
-                        origins[0] - 0.5 * difference, origins[1] + 0.5 * difference);
+                offspringA[j] = random().nextDouble(
+                        lower - 0.5 * difference, upper + 0.5 * difference);
+                offspringB[j] = random().nextDouble(
+                        lower - 0.5 * difference, upper + 0.5 * difference);
             }
 
             results.add(offspringA);
@@ -147,23 +283,34 @@ public class NovelPSO extends BasePSO {
             return results;
         }
 
-        private Particle getFittest(List<Particle> particles) {
-            double bestFitness = Double.MAX_VALUE;
-            Particle fittest = null;
-            for (Particle particle: particles) {
-                double currentFitness = problem.evaluate(particle.getPBest());
-                if (currentFitness < bestFitness) {
-                    bestFitness = currentFitness;
-                    fittest = particle;
-                }
+        // the pBest fitness of each particle, in a buffer reused between calls, with
+        // NaN ranked last
+        private double[] fitnessOf(List<Particle> particles) {
+            if (fitness.length < particles.size()) {
+                fitness = new double[particles.size()];
             }
-            return fittest;
+            for (int i = 0; i < particles.size(); i++) {
+                double value = particles.get(i).getPBestFitness();
+                fitness[i] = Double.isNaN(value) ? Double.POSITIVE_INFINITY : value;
+            }
+            return fitness;
         }
 
+        // the n particles with the fittest pBests, in no particular order
         private List<Particle> getNFittest(List<Particle> particles, int n) {
-            Collections.sort(particles,
-                    Comparator.comparingDouble(particle -> problem.evaluate(particle.getPBest())));
-            return particles.subList(0, n);
+            double[] fitness = fitnessOf(particles);
+            if (indices.length < particles.size()) {
+                indices = new int[particles.size()];
+            }
+            for (int i = 0; i < particles.size(); i++) {
+                indices[i] = i;
+            }
+            Selection.selectFittest(fitness, indices, particles.size(), n);
+            survivors.clear();
+            for (int i = 0; i < n; i++) {
+                survivors.add(particles.get(indices[i]));
+            }
+            return survivors;
         }
     }
 }
@@ -0,0 +1,109 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A dataset whose columns live outside the Java heap, either memory-mapped
+ * from a Dataset cache file or copied into direct buffers. The heap holds
+ * only one buffer object per column, whatever the number of rows, and a
+ * mapped dataset is paged in by the operating system as it is read, so it
+ * may be larger than the heap or even than physical memory.
+ *
+ * The value of input j for row r is column(j).get(r) and its target
+ * targets().get(r). The buffers are read-only; use absolute gets, which are
+ * safe from several threads.
+ */
+public final class OffHeapDataset {
+
+    // each column is a single buffer, indexed by int
+    private static final long MAX_ROWS = Integer.MAX_VALUE / Double.BYTES;
+
+    private final int rows;
+    private final DoubleBuffer[] columns;
+    private final DoubleBuffer targets;
+
+    private OffHeapDataset(int rows, DoubleBuffer[] columns, DoubleBuffer targets) {
+        this.rows = rows;
+        this.columns = columns;
+        this.targets = targets;
+    }
+
+    /**
+     * Memory-map a cache file written by Dataset::writeCache, without
+     * reading it. The mapping outlives the file being closed, and is released
+     * when the dataset is garbage collected.
+     *
+     * @param cache the cache file
+     * @return the dataset
+     */
+    public static OffHeapDataset map(Path cache) throws IOException {
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            long[] shape = Dataset.readCacheHeader(channel, cache);
+            int inputs = (int) shape[0];
+            long rows = shape[1];
+            if (rows > MAX_ROWS) {
+                throw new IOException("OffHeapDataset::map " + cache + " has " + rows +
+                        " rows; at most " + MAX_ROWS + " are supported.");
+            }
+            DoubleBuffer[] columns = new DoubleBuffer[inputs + 1];
+            for (int j = 0; j <= inputs; j++) {
+                columns[j] = channel.map(FileChannel.MapMode.READ_ONLY, Dataset.cacheOffset(rows, j),
+                        rows * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+            return new OffHeapDataset((int) rows, Arrays.copyOf(columns, inputs), columns[inputs]);
+        }
+    }
+
+    /**
+     * Copy a dataset into direct buffers, after which the dataset's arrays
+     * can be dropped.
+     *
+     * @param dataset the dataset
+     * @return the copy
+     */
+    public static OffHeapDataset copyOf(Dataset dataset) {
+        int rows = dataset.rows();
+        if (rows > MAX_ROWS) {
+            throw new IllegalArgumentException("OffHeapDataset::copyOf dataset has " + rows +
+                    " rows; at most " + MAX_ROWS + " are supported.");
+        }
+        DoubleBuffer[] columns = new DoubleBuffer[dataset.inputs()];
+        for (int j = 0; j < columns.length; j++) {
+            columns[j] = allocate(rows).put(dataset.features(), j * rows, rows).asReadOnlyBuffer();
+        }
+        DoubleBuffer targets = allocate(rows).put(dataset.targets()).asReadOnlyBuffer();
+        return new OffHeapDataset(rows, columns, targets);
+    }
+
+    private static DoubleBuffer allocate(int rows) {
+        return ByteBuffer.allocateDirect(rows * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int inputs() {
+        return columns.length;
+    }
+
+    /**
+     * @param j an input
+     * @return the values of input j, indexed by row
+     */
+    public DoubleBuffer column(int j) {
+        return columns[j];
+    }
+
+    /**
+     * @return the target values, indexed by row
+     */
+    public DoubleBuffer targets() {
+        return targets;
+    }
+}
@@ -10,6 +10,7 @@ public class PSOData {
     public static final double DEFAULT_MUTATE_RATE = 0.1;
     public static final int DEFAULT_MATING_POOL_SCALE = 3;
     public static final int DEFAULT_K = 6;
+    // for Problem::generate without a generator; the solvers use their own streams
     public static final Random RANDOM = new Random();
 
 
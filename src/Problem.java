@@ -1,7 +1,18 @@
+import java.util.random.RandomGenerator;
+
 public interface Problem {
 
     double[][] bounds();
 
+    /**
+     * The same bounds as bounds(), as an immutable Bounds. The default
+     * converts bounds() on every call; implementations should return a
+     * precomputed instance, which solvers may then read freely.
+     */
+    default Bounds limits() {
+        return Bounds.of(bounds());
+    }
+
     /**
      * Determines if the proposed solution is valid
      * within the constraints of the problem
@@ -10,6 +21,39 @@ public interface Problem {
      */
     boolean validates(double[] params);
     double evaluate(double[] params);
+
+    /**
+     * Evaluate several candidate solutions at once, so that implementations
+     * can share a single pass over their data between them.
+     *
+     * @param candidates the candidate solutions
+     * @param out receives evaluate(candidates[i]) at out[i]
+     */
+    default void evaluateBatch(double[][] candidates, double[] out) {
+        evaluateBatch(candidates, 0, candidates.length, out);
+    }
+
+    /**
+     * As above, restricted to candidates[from] to candidates[to - 1].
+     */
+    default void evaluateBatch(double[][] candidates, int from, int to, double[] out) {
+        for (int i = from; i < to; i++) {
+            out[i] = evaluate(candidates[i]);
+        }
+    }
     double[] generate();
+
+    /**
+     * As generate, drawing from the given generator. Solvers call this with
+     * their own seeded streams, so a problem which overrides it makes their
+     * runs reproducible. The default ignores the generator.
+     *
+     * @param random the generator to draw from
+     * @return a randomly generated, valid solution
+     */
+    default double[] generate(RandomGenerator random) {
+        return generate();
+    }
+
     int dimensions();
 }
\ No newline at end of file
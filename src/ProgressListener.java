@@ -0,0 +1,10 @@
+/**
+ * Receives a snapshot at the end of every solver iteration. Called on a
+ * SolverMetrics dispatch thread, one snapshot at a time and in order, never
+ * on the solver's own thread.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    void onIteration(IterationSnapshot snapshot);
+}
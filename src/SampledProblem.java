@@ -0,0 +1,26 @@
+/**
+ * A Problem whose fitness is an average over a set of samples (e.g. the rows
+ * of a dataset), and which can therefore be estimated from a subset of them.
+ */
+public interface SampledProblem extends Problem {
+
+    /**
+     * @return the number of samples the full fitness is computed over
+     */
+    int samples();
+
+    /**
+     * Estimate the fitness of each candidate from a subset of the samples, on
+     * the same scale as evaluate.
+     *
+     * @param candidates the candidate solutions
+     * @param from index of the first candidate to evaluate
+     * @param to index after the last candidate to evaluate
+     * @param samples indices of samples, each in [0, samples())
+     * @param sampleFrom index in samples of the first sample to use
+     * @param sampleTo index in samples after the last sample to use
+     * @param out receives the estimate for candidates[i] at out[i]
+     */
+    void evaluateBatch(double[][] candidates, int from, int to,
+                       int[] samples, int sampleFrom, int sampleTo, double[] out);
+}
@@ -0,0 +1,88 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Selection operators over arrays of fitness values, where lower is fitter.
+ * They work on indices into the arrays so that they allocate nothing, and
+ * fitness values must not be NaN.
+ */
+public final class Selection {
+
+    private Selection() {
+    }
+
+    /**
+     * Tournament selection: draw k entries of fitness[0] to fitness[size - 1]
+     * uniformly at random, with replacement, and keep the fittest.
+     *
+     * @param fitness the fitness of each candidate
+     * @param size the number of candidates
+     * @param k the tournament size
+     * @param random the source of the draws
+     * @return the index of the tournament winner
+     */
+    public static int tournament(double[] fitness, int size, int k, RandomGenerator random) {
+        if (size < 1 || k < 1) {
+            throw new IllegalArgumentException("Selection::tournament requires at least one " +
+                    "candidate and a tournament size of at least 1; they were " + size + " and " +
+                    k + ".");
+        }
+        int winner = random.nextInt(size);
+        for (int i = 1; i < k; i++) {
+            int challenger = random.nextInt(size);
+            if (fitness[challenger] < fitness[winner]) winner = challenger;
+        }
+        return winner;
+    }
+
+    /**
+     * Partial selection: rearrange indices[0] to indices[size - 1] so that the
+     * first n are the indices of the n fittest candidates, in no particular
+     * order. Uses quickselect, which takes expected linear time rather than
+     * the n log n of sorting everything.
+     *
+     * @param fitness the fitness of each candidate, looked up by index
+     * @param indices the candidates to choose from, reordered in place
+     * @param size the number of candidates
+     * @param n the number to select
+     */
+    public static void selectFittest(double[] fitness, int[] indices, int size, int n) {
+        if (n < 0 || n > size) {
+            throw new IllegalArgumentException("Selection::selectFittest cannot select " + n +
+                    " of " + size + " candidates.");
+        }
+        if (n == 0 || n == size) return;
+
+        // place the nth fittest at indices[n - 1], with fitter ones before it
+        int target = n - 1;
+        int lo = 0;
+        int hi = size - 1;
+        while (lo < hi) {
+            double pivot = median(fitness[indices[lo]], fitness[indices[(lo + hi) >>> 1]],
+                    fitness[indices[hi]]);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (fitness[indices[i]] < pivot) i++;
+                while (fitness[indices[j]] > pivot) j--;
+                if (i <= j) {
+                    int swap = indices[i];
+                    indices[i] = indices[j];
+                    indices[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            // now indices[lo..j] <= pivot, indices[j+1..i-1] == pivot, indices[i..hi] >= pivot
+            if (target <= j) hi = j;
+            else if (target >= i) lo = i;
+            else return;
+        }
+    }
+
+    private static double median(double a, double b, double c) {
+        if (a < b) {
+            return b < c ? b : Math.max(a, c);
+        }
+        return a < c ? a : Math.max(b, c);
+    }
+}
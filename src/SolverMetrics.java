@@ -0,0 +1,226 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a solver: the gBest fitness history, time spent in each phase
+ * of an iteration and the registered progress listeners.
+ *
+ * Recording is done by the solver's own thread and allocates nothing unless
+ * a listener is registered. Listeners are called, in order of iteration, on a
+ * daemon thread borrowed from a pool shared by every SolverMetrics only
+ * while snapshots are pending, so that slow listeners never hold up the
+ * solver and an idle or finished solver holds no thread; when they fall more
+ * than QUEUE_CAPACITY snapshots behind, the oldest pending snapshots are
+ * dropped.
+ */
+public class SolverMetrics {
+
+    public enum Phase {
+        /** velocity and position updates */
+        UPDATE,
+        /** fitness evaluation, including any screening */
+        EVALUATE,
+        /** NovelPSO tournament selection */
+        SELECTION,
+        /** NovelPSO crossover and mutation, including any scoring of the offspring */
+        CROSSOVER,
+        /** NovelPSO survivor sort */
+        SORT
+    }
+
+    static final int QUEUE_CAPACITY = 1024;
+    private static final Phase[] PHASES = Phase.values();
+    // idle threads exit after a minute, so the pool holds none once solvers stop publishing
+    private static final ExecutorService DISPATCHERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "solver-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private double[] history = new double[64];
+    private int historyCapacity = 0;
+    private long recorded = 0;
+    private final long[] phaseNanos = new long[PHASES.length];
+    private final long[] phaseCalls = new long[PHASES.length];
+    private final List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private BlockingQueue<IterationSnapshot> pending;
+    // true while a dispatch task is submitted or running; at most one is, which keeps
+    // snapshots in order
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    /**
+     * Keep only the most recent values of the fitness history. By default the
+     * whole history is kept.
+     *
+     * @param capacity the number of values to keep, or 0 to keep all
+     */
+    public synchronized void setHistoryCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("SolverMetrics::setHistoryCapacity argument must be " +
+                    "non-negative; it was " + capacity + ".");
+        }
+        double[] kept = getHistory();
+        historyCapacity = capacity;
+        int keep = capacity == 0 ? kept.length : Math.min(capacity, kept.length);
+        history = new double[capacity == 0 ? Math.max(64, keep) : capacity];
+        System.arraycopy(kept, kept.length - keep, history, 0, keep);
+        recorded = keep;
+    }
+
+    /**
+     * Register a listener to receive a snapshot at the end of every iteration.
+     *
+     * @param listener the listener
+     */
+    public synchronized void addListener(ProgressListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("SolverMetrics::addListener argument must not be null.");
+        }
+        if (pending == null) {
+            pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(ProgressListener listener) {
+        listeners.remove(listener);
+    }
+
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    synchronized void record(double gBestFitness) {
+        if (historyCapacity == 0 && recorded == history.length) {
+            history = Arrays.copyOf(history, history.length * 2);
+        }
+        history[(int) (recorded % history.length)] = gBestFitness;
+        recorded++;
+    }
+
+    // replaces the history, e.g. with one restored from a checkpoint
+    synchronized void setHistory(double[] values) {
+        recorded = 0;
+        if (historyCapacity == 0 && history.length < values.length) {
+            history = new double[values.length];
+        }
+        for (double value : values) {
+            record(value);
+        }
+    }
+
+    /**
+     * Add the time since start, a System.nanoTime() reading, to a phase.
+     */
+    void time(Phase phase, long start) {
+        phaseNanos[phase.ordinal()] += System.nanoTime() - start;
+        phaseCalls[phase.ordinal()]++;
+    }
+
+    // queues the snapshot for the listeners, dropping the oldest pending one when full, and
+    // starts a dispatch task unless one is already running
+    void publish(IterationSnapshot snapshot) {
+        while (!pending.offer(snapshot)) {
+            if (pending.poll() != null) dropped.incrementAndGet();
+        }
+        if (dispatching.compareAndSet(false, true)) {
+            DISPATCHERS.execute(this::dispatch);
+        }
+    }
+
+    // delivers pending snapshots until there are none, then returns the thread to the pool
+    private void dispatch() {
+        while (true) {
+            IterationSnapshot snapshot = pending.poll();
+            if (snapshot == null) {
+                dispatching.set(false);
+                // a snapshot published after the poll but before the flag was cleared
+                if (pending.isEmpty() || !dispatching.compareAndSet(false, true)) return;
+                continue;
+            }
+            for (ProgressListener listener : listeners) {
+                try {
+                    listener.onIteration(snapshot);
+                } catch (RuntimeException e) {
+                    // a failing listener must not stop delivery to the others
+                    Thread t = Thread.currentThread();
+                    t.getUncaughtExceptionHandler().uncaughtException(t, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the recorded gBest fitness values, oldest first
+     */
+    public synchronized double[] getHistory() {
+        int size = (int) Math.min(recorded, history.length);
+        double[] values = new double[size];
+        int start = (int) ((recorded - size) % history.length);
+        for (int i = 0; i < size; i++) {
+            values[i] = history[(start + i) % history.length];
+        }
+        return values;
+    }
+
+    /**
+     * @return the most recently recorded gBest fitness, or NaN if there is none
+     */
+    public synchronized double getLatest() {
+        return recorded == 0 ? Double.NaN : history[(int) ((recorded - 1) % history.length)];
+    }
+
+    /**
+     * @return the number of values recorded, including any no longer kept
+     */
+    public long getRecordedCount() {
+        return recorded;
+    }
+
+    /**
+     * @param phase the phase
+     * @return the total time spent in the phase, in nanoseconds
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @param phase the phase
+     * @return the number of times the phase was timed
+     */
+    public long getPhaseCount(Phase phase) {
+        return phaseCalls[phase.ordinal()];
+    }
+
+    long[] copyPhaseNanos() {
+        return phaseNanos.clone();
+    }
+
+    /**
+     * @return the number of snapshots dropped because listeners fell behind
+     */
+    public long getDroppedSnapshots() {
+        return dropped.get();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase phase : PHASES) {
+            if (phaseCalls[phase.ordinal()] == 0) continue;
+            sb.append(phase).append(": ")
+                    .append(phaseNanos[phase.ordinal()] / 1_000_000).append(" ms over ")
+                    .append(phaseCalls[phase.ordinal()]).append(" calls\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Why a solver's run ended.
+ */
+public enum StopReason {
+    /** the configured number of iterations (runTime) was completed */
+    ITERATIONS,
+    /** the evaluation budget was used up */
+    EVALUATION_BUDGET,
+    /** the time limit was reached */
+    TIME_LIMIT,
+    /** gBest reached the target fitness */
+    TARGET_FITNESS,
+    /** gBest stopped improving for the stagnation window */
+    STAGNATION,
+    /** the validation monitor saw validation fitness stop improving */
+    VALIDATION,
+    /** BasePSO::requestStop was called */
+    CANCELLED
+}
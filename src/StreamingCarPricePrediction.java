@@ -0,0 +1,299 @@
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * CarPricePrediction over a sliding window of the most recent rows of a
+ * stream, for training continuously as data arrives rather than restarting
+ * on every refresh. Rows may be appended from any thread; they are queued
+ * and enter the window at the solver's next call to advance, each one
+ * retiring the oldest row once the window is full.
+ *
+ * On advance, the fitness the solver holds for gBest and the pBests is
+ * updated incrementally: the squared errors of the retired rows are
+ * subtracted from each solution's sum of squared errors and those of the new
+ * rows added, which costs a pass over the changed rows only. Rounding error
+ * accumulates in the sums, so once as many rows have changed as the rescore
+ * interval (by default the window's capacity), the solutions are evaluated
+ * over the whole window instead.
+ */
+public class StreamingCarPricePrediction implements StreamingProblem {
+
+    private static final int ROW_LENGTH = CarPricePrediction.N_INPUTS + 1;
+
+    private final int capacity;
+    // ring buffer, column-major: input j of the row in slot s is features[j * capacity + s]
+    private final double[] features;
+    private final double[] prices;
+    private int oldest;
+    private int rows;
+    private int rescoreRows;
+    // rows which entered or left the window since solutions were last evaluated in full
+    private long changedRows;
+    private long appended;
+    // queued rows, row-major with the price last; the buffers are swapped by advance
+    private final Object queueLock = new Object();
+    private double[] queue = new double[64 * ROW_LENGTH];
+    private int queuedRows;
+    private double[] applying = new double[64 * ROW_LENGTH];
+    // the sums of squared errors of the solutions being advanced
+    private double[] sse = new double[0];
+
+    /**
+     * @param capacity the maximum number of rows in the window, which is
+     *                 initially empty; rows appended before solving enter it
+     *                 when the solver starts
+     */
+    public StreamingCarPricePrediction(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("StreamingCarPricePrediction capacity must be > 0; " +
+                    "it was " + capacity);
+        }
+        this.capacity = capacity;
+        this.rescoreRows = capacity;
+        features = new double[CarPricePrediction.N_INPUTS * capacity];
+        prices = new double[capacity];
+    }
+
+    /**
+     * As above, with the window initially holding the last rows of a dataset,
+     * so that it can be solved straight away.
+     */
+    public StreamingCarPricePrediction(int capacity, Dataset initial) {
+        this(capacity);
+        checkInputs(initial);
+        int first = Math.max(0, initial.rows() - capacity);
+        double[] row = new double[ROW_LENGTH];
+        for (int r = first; r < initial.rows(); r++) {
+            copyRow(initial, r, row, 0);
+            store(row, 0, rows++);
+        }
+        appended = initial.rows() - first;
+    }
+
+    /**
+     * Queue a row for the window. Safe to call from any thread.
+     *
+     * @param inputs the row's N_INPUTS inputs
+     * @param price the row's price
+     */
+    public void append(double[] inputs, double price) {
+        if (inputs.length != CarPricePrediction.N_INPUTS) {
+            throw new IllegalArgumentException("StreamingCarPricePrediction::append requires " +
+                    CarPricePrediction.N_INPUTS + " inputs; there were " + inputs.length + ".");
+        }
+        synchronized (queueLock) {
+            int offset = reserve(1);
+            System.arraycopy(inputs, 0, queue, offset, inputs.length);
+            queue[offset + ROW_LENGTH - 1] = price;
+        }
+    }
+
+    /**
+     * Queue every row of a dataset, in order. Safe to call from any thread.
+     */
+    public void append(Dataset dataset) {
+        checkInputs(dataset);
+        synchronized (queueLock) {
+            int offset = reserve(dataset.rows());
+            for (int r = 0; r < dataset.rows(); r++) {
+                copyRow(dataset, r, queue, offset + r * ROW_LENGTH);
+            }
+        }
+    }
+
+    // makes room for n more queued rows, returning the offset of the first
+    private int reserve(int n) {
+        long length = (long) (queuedRows + n) * ROW_LENGTH;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("StreamingCarPricePrediction::append queue is full; " +
+                    "the solver is not advancing the window.");
+        }
+        if (length > queue.length) {
+            queue = Arrays.copyOf(queue, (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max(length, 2L * queue.length)));
+        }
+        int offset = queuedRows * ROW_LENGTH;
+        queuedRows += n;
+        return offset;
+    }
+
+    private static void checkInputs(Dataset dataset) {
+        if (dataset.inputs() != CarPricePrediction.N_INPUTS) {
+            throw new IllegalArgumentException("StreamingCarPricePrediction requires a dataset of " +
+                    CarPricePrediction.N_INPUTS + " inputs; it had " + dataset.inputs() + ".");
+        }
+    }
+
+    private static void copyRow(Dataset dataset, int r, double[] target, int offset) {
+        double[] source = dataset.features();
+        for (int j = 0; j < CarPricePrediction.N_INPUTS; j++) {
+            target[offset + j] = source[j * dataset.rows() + r];
+        }
+        target[offset + ROW_LENGTH - 1] = dataset.targets()[r];
+    }
+
+    // writes the row at source[offset...] as the ith row of the window
+    private void store(double[] source, int offset, int i) {
+        int slot = (oldest + i) % capacity;
+        for (int j = 0; j < CarPricePrediction.N_INPUTS; j++) {
+            features[j * capacity + slot] = source[offset + j];
+        }
+        prices[slot] = source[offset + ROW_LENGTH - 1];
+    }
+
+    /**
+     * Evaluate solutions over the whole window, rather than updating them
+     * incrementally, once this many rows have entered or left it since they
+     * last were.
+     *
+     * @param rows the number of changed rows, by default the capacity
+     */
+    public void setRescoreRows(int rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("StreamingCarPricePrediction::setRescoreRows " +
+                    "argument must be > 0; it was " + rows);
+        }
+        rescoreRows = rows;
+    }
+
+    @Override
+    public int advance(double[][] solutions, double[] fitness, int count) {
+        double[] incoming;
+        int n;
+        synchronized (queueLock) {
+            if (queuedRows == 0) return 0;
+            incoming = queue;
+            n = queuedRows;
+            queue = applying;
+            queuedRows = 0;
+            applying = incoming;
+        }
+
+        // only the last capacity rows can remain in the window
+        int skipped = Math.max(0, n - capacity);
+        int added = n - skipped;
+        int retired = Math.max(0, rows + added - capacity);
+        changedRows += added + retired;
+        appended += added;
+        boolean rescore = rows == retired || changedRows >= rescoreRows;
+
+        if (!rescore) {
+            if (sse.length < count) sse = new double[count];
+            for (int i = 0; i < count; i++) {
+                if (!Double.isFinite(fitness[i])) continue;
+                sse[i] = fitness[i] * rows - sumSquaredErrors(solutions[i], 0, retired);
+            }
+        }
+        oldest = (oldest + retired) % capacity;
+        rows -= retired;
+        int firstAdded = rows;
+        for (int r = skipped; r < n; r++) {
+            store(incoming, r * ROW_LENGTH, rows++);
+        }
+
+        int evaluated = 0;
+        for (int i = 0; i < count; i++) {
+            if (!Double.isFinite(fitness[i])) continue;
+            if (rescore) {
+                fitness[i] = evaluate(solutions[i]);
+                evaluated++;
+            } else {
+                double total = sse[i] + sumSquaredErrors(solutions[i], firstAdded, added);
+                fitness[i] = Math.max(0.0, total) / rows;
+            }
+        }
+        if (rescore) changedRows = 0;
+        return evaluated;
+    }
+
+    // sum of squared errors over n rows of the window starting at its ith
+    private double sumSquaredErrors(double[] params, int i, int n) {
+        int slot = (oldest + i) % capacity;
+        int first = Math.min(n, capacity - slot);
+        double sum = CarPricePrediction.sumSquaredErrors(params, features, capacity, prices, slot, first);
+        if (first < n) {
+            sum += CarPricePrediction.sumSquaredErrors(params, features, capacity, prices, 0, n - first);
+        }
+        return sum;
+    }
+
+    /**
+     * Mean squared error of the network over the rows in the window.
+     */
+    @Override
+    public double evaluate(double[] params) {
+        if (rows == 0) {
+            throw new IllegalStateException("StreamingCarPricePrediction::evaluate the window is " +
+                    "empty.");
+        }
+        return sumSquaredErrors(params, 0, rows) / rows;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return rows == 0;
+    }
+
+    /**
+     * @return the number of rows in the window
+     */
+    public int rows() {
+        return rows;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of rows which have entered the window, including
+     * those since retired
+     */
+    public long getAppended() {
+        return appended;
+    }
+
+    @Override
+    public boolean hasQueuedChanges() {
+        return getQueued() > 0;
+    }
+
+    /**
+     * @return the number of rows queued for the next advance
+     */
+    public int getQueued() {
+        synchronized (queueLock) {
+            return queuedRows;
+        }
+    }
+
+    @Override
+    public double[][] bounds() {
+        return CarPricePrediction.LIMITS.toArray();
+    }
+
+    @Override
+    public Bounds limits() {
+        return CarPricePrediction.LIMITS;
+    }
+
+    @Override
+    public boolean validates(double[] params) {
+        return CarPricePrediction.LIMITS.contains(params);
+    }
+
+    @Override
+    public double[] generate() {
+        return generate(PSOData.RANDOM);
+    }
+
+    @Override
+    public double[] generate(RandomGenerator random) {
+        return CarPricePrediction.randomSolution(random);
+    }
+
+    @Override
+    public int dimensions() {
+        return CarPricePrediction.N_PARAMETERS;
+    }
+}
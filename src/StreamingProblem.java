@@ -0,0 +1,35 @@
+/**
+ * A Problem whose data changes while it is being solved, e.g. a sliding
+ * window over a stream of rows. Changes are queued as they arrive and only
+ * take effect in advance, which the solver calls between iterations, so the
+ * fitness function is fixed for the whole of an iteration. Not supported by
+ * AsynchronousPSO, which has no such point and rejects one on construction.
+ */
+public interface StreamingProblem extends Problem {
+
+    /**
+     * @return true if changes are queued for the next advance; safe to call
+     * from any thread
+     */
+    boolean hasQueuedChanges();
+
+    /**
+     * @return true if there is no data to evaluate solutions over, not
+     * counting queued changes
+     */
+    boolean isEmpty();
+
+    /**
+     * Apply the queued changes to the data, and bring the fitness the solver
+     * holds for its solutions up to date with them: the fitness of
+     * solutions[i] over the old data, fitness[i], is replaced by its fitness
+     * over the new data. Non-finite fitness values are left as they are.
+     *
+     * @param solutions the solutions whose fitness is known
+     * @param fitness their fitness, updated in place
+     * @param count the number of solutions
+     * @return the number of solutions whose fitness was evaluated in full
+     * rather than updated incrementally
+     */
+    int advance(double[][] solutions, double[] fitness, int count);
+}
@@ -0,0 +1,440 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hyper-parameter sweep: several independent runs of every configuration in
+ * a grid of solver parameters, run concurrently on a fixed number of threads
+ * against one shared problem. BasePSO configurations range over the social
+ * and cognitive coefficients; NovelPSO configurations also range over the
+ * crossover rate, mutation rate and tournament size.
+ *
+ * Every run is written to the output file as soon as it finishes, followed
+ * by a summary of its configuration (best, median, mean and variance of the
+ * final fitness) as soon as that configuration's last run finishes. Files
+ * named *.csv are written as CSV, anything else as JSON Lines.
+ */
+public class Sweep {
+
+    private static final String CSV_HEADER = "record,solver,social_coeff,cognitive_coeff," +
+            "crossover_rate,mutate_rate,k,run,fitness,evaluations,iterations,seconds,stop_reason," +
+            "runs,best,median,mean,variance";
+
+    private final Problem problem;
+    private String[] solvers = {"base", "novel"};
+    private double[] socialCoeffs = {PSOData.DEFAULT_SOCIAL_COEFF};
+    private double[] cognitiveCoeffs = {PSOData.DEFAULT_COGNITIVE_COEFF};
+    private double[] crossOverRates = {PSOData.DEFAULT_CROSSOVER_RATE};
+    private double[] mutateRates = {PSOData.DEFAULT_MUTATE_RATE};
+    private int[] tournamentSizes = {PSOData.DEFAULT_K};
+    private int runs = 10;
+    private int runTime = PSOData.DEFAULT_FUNCTION_EVALUATIONS;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean seeded;
+    private long seed;
+
+    /**
+     * @param problem the problem every run solves, which must be safe to
+     *                evaluate from several threads at once, as
+     *                CarPricePrediction is
+     */
+    public Sweep(Problem problem) {
+        this.problem = problem;
+    }
+
+    /**
+     * @param solvers any of "base" for BasePSO and "novel" for NovelPSO
+     */
+    public void setSolvers(String... solvers) {
+        for (String solver : solvers) {
+            if (!"base".equals(solver) && !"novel".equals(solver)) {
+                throw new IllegalArgumentException("Sweep::setSolvers arguments must be 'base' or " +
+                        "'novel'; one was '" + solver + "'.");
+            }
+        }
+        this.solvers = nonEmpty("setSolvers", solvers).clone();
+    }
+
+    public void setSocialCoeffs(double... coeffs) {
+        socialCoeffs = nonEmpty("setSocialCoeffs", coeffs).clone();
+    }
+
+    public void setCognitiveCoeffs(double... coeffs) {
+        cognitiveCoeffs = nonEmpty("setCognitiveCoeffs", coeffs).clone();
+    }
+
+    public void setCrossOverRates(double... rates) {
+        crossOverRates = nonEmpty("setCrossOverRates", rates).clone();
+    }
+
+    public void setMutateRates(double... rates) {
+        mutateRates = nonEmpty("setMutateRates", rates).clone();
+    }
+
+    public void setTournamentSizes(int... sizes) {
+        if (sizes.length == 0) {
+            throw new IllegalArgumentException("Sweep::setTournamentSizes requires at least one value.");
+        }
+        tournamentSizes = sizes.clone();
+    }
+
+    /**
+     * @param runs the number of independent runs of each configuration
+     */
+    public void setRuns(int runs) {
+        if (runs < 1) {
+            throw new IllegalArgumentException("Sweep::setRuns argument must be > 0; it was " + runs);
+        }
+        this.runs = runs;
+    }
+
+    public void setRunTime(int runTime) {
+        if (runTime < 1) {
+            throw new IllegalArgumentException("Sweep::setRunTime argument must be > 0; it was " +
+                    runTime);
+        }
+        this.runTime = runTime;
+    }
+
+    /**
+     * @param threads the number of runs in progress at once
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Sweep::setThreads argument must be > 0; it was " +
+                    threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Make the sweep reproducible: run r of every configuration is seeded
+     * with seed + r, so configurations are also compared on the same random
+     * streams. Results do not depend on the number of threads.
+     *
+     * @param seed the seed of each configuration's first run
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        seeded = true;
+    }
+
+    /**
+     * @return every configuration of the grid, in the order they are run
+     */
+    public List<Configuration> configurations() {
+        List<Configuration> configurations = new ArrayList<>();
+        for (String solver : solvers) {
+            boolean novel = "novel".equals(solver);
+            for (double social : socialCoeffs) {
+                for (double cognitive : cognitiveCoeffs) {
+                    if (!novel) {
+                        configurations.add(new Configuration(solver, social, cognitive,
+                                Double.NaN, Double.NaN, 0));
+                        continue;
+                    }
+                    for (double crossOver : crossOverRates) {
+                        for (double mutate : mutateRates) {
+                            for (int k : tournamentSizes) {
+                                configurations.add(new Configuration(solver, social, cognitive,
+                                        crossOver, mutate, k));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return configurations;
+    }
+
+    /**
+     * Run the sweep, streaming the results to the output file.
+     *
+     * @param output the CSV or JSON Lines file to write
+     * @return the summary of each configuration, in the order of configurations()
+     */
+    public List<Summary> run(Path output) throws IOException {
+        List<Configuration> configurations = configurations();
+        double[][] fitness = new double[configurations.size()][runs];
+        int[] finished = new int[configurations.size()];
+        Summary[] summaries = new Summary[configurations.size()];
+        boolean csv = output.getFileName().toString().endsWith(".csv");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (BufferedWriter writer = Files.newBufferedWriter(output)) {
+            CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+            for (int c = 0; c < configurations.size(); c++) {
+                Configuration configuration = configurations.get(c);
+                int index = c;
+                for (int r = 0; r < runs; r++) {
+                    int run = r;
+                    completion.submit(() -> runOnce(index, configuration, run));
+                }
+            }
+            if (csv) {
+                writer.write(CSV_HEADER);
+                writer.newLine();
+            }
+
+            for (int i = 0; i < configurations.size() * runs; i++) {
+                Result result = completion.take().get();
+                int c = result.index;
+                fitness[c][result.run] = result.fitness;
+                writer.write(csv ? result.toCsv() : result.toJson());
+                writer.newLine();
+                if (++finished[c] == runs) {
+                    summaries[c] = new Summary(result.configuration, fitness[c]);
+                    writer.write(csv ? summaries[c].toCsv() : summaries[c].toJson());
+                    writer.newLine();
+                }
+                writer.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sweep::run was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Sweep::run failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return Arrays.asList(summaries);
+    }
+
+    private Result runOnce(int index, Configuration configuration, int run) {
+        BasePSO solver = configuration.createSolver(problem);
+        solver.setRunTime(runTime);
+        if (seeded) solver.setSeed(seed + run);
+        long start = System.nanoTime();
+        solver.solve();
+        return new Result(index, configuration, run, solver.getBestFitness(), solver.getEvaluationCount(),
+                solver.getIterations(), (System.nanoTime() - start) / 1e9, solver.getStopReason());
+    }
+
+    private static <T> T[] nonEmpty(String method, T[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("Sweep::" + method + " requires at least one value.");
+        }
+        return values;
+    }
+
+    private static double[] nonEmpty(String method, double[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("Sweep::" + method + " requires at least one value.");
+        }
+        return values;
+    }
+
+    // JSON has no literals for infinities and NaN
+    private static String json(double value) {
+        return Double.isFinite(value) ? String.valueOf(value) : "null";
+    }
+
+    private static String csv(double value) {
+        return Double.isNaN(value) ? "" : String.valueOf(value);
+    }
+
+    /**
+     * One point of the grid. The NovelPSO parameters are NaN (and k is 0)
+     * for BasePSO configurations.
+     */
+    public static final class Configuration {
+        private final String solver;
+        private final double socialCoeff;
+        private final double cognitiveCoeff;
+        private final double crossOverRate;
+        private final double mutateRate;
+        private final int k;
+
+        Configuration(String solver, double socialCoeff, double cognitiveCoeff,
+                      double crossOverRate, double mutateRate, int k) {
+            this.solver = solver;
+            this.socialCoeff = socialCoeff;
+            this.cognitiveCoeff = cognitiveCoeff;
+            this.crossOverRate = crossOverRate;
+            this.mutateRate = mutateRate;
+            this.k = k;
+        }
+
+        BasePSO createSolver(Problem problem) {
+            BasePSO solver;
+            if ("novel".equals(this.solver)) {
+                NovelPSO novel = new NovelPSO(problem);
+                novel.setCrossOverRate(crossOverRate);
+                novel.setMutateRate(mutateRate);
+                novel.setTournamentSize(k);
+                solver = novel;
+            } else {
+                solver = new BasePSO(problem);
+            }
+            solver.setSocialCoeff(socialCoeff);
+            solver.setCognitiveCoeff(cognitiveCoeff);
+            return solver;
+        }
+
+        public String getSolver() {
+            return solver;
+        }
+
+        public double getSocialCoeff() {
+            return socialCoeff;
+        }
+
+        public double getCognitiveCoeff() {
+            return cognitiveCoeff;
+        }
+
+        public double getCrossOverRate() {
+            return crossOverRate;
+        }
+
+        public double getMutateRate() {
+            return mutateRate;
+        }
+
+        public int getTournamentSize() {
+            return k;
+        }
+
+        private String toCsv() {
+            return solver + "," + socialCoeff + "," + cognitiveCoeff + "," + csv(crossOverRate) + "," +
+                    csv(mutateRate) + "," + (k > 0 ? String.valueOf(k) : "");
+        }
+
+        private String toJson() {
+            String json = "\"solver\":\"" + solver + "\",\"socialCoeff\":" + socialCoeff +
+                    ",\"cognitiveCoeff\":" + cognitiveCoeff;
+            if (k > 0) {
+                json += ",\"crossOverRate\":" + crossOverRate + ",\"mutateRate\":" + mutateRate +
+                        ",\"k\":" + k;
+            }
+            return json;
+        }
+
+        @Override
+        public String toString() {
+            String string = solver + " social=" + socialCoeff + " cognitive=" + cognitiveCoeff;
+            if (k > 0) {
+                string += " crossOver=" + crossOverRate + " mutate=" + mutateRate + " k=" + k;
+            }
+            return string;
+        }
+    }
+
+    /**
+     * The final fitness of every run of one configuration.
+     */
+    public static final class Summary {
+        private final Configuration configuration;
+        private final int runs;
+        private final double best;
+        private final double median;
+        private final double mean;
+        private final double variance;
+
+        Summary(Configuration configuration, double[] fitness) {
+            double[] sorted = fitness.clone();
+            Arrays.sort(sorted);
+            int n = sorted.length;
+            double sum = 0.0;
+            for (double value : sorted) sum += value;
+            double mean = sum / n;
+            double squares = 0.0;
+            for (double value : sorted) squares += (value - mean) * (value - mean);
+
+            this.configuration = configuration;
+            this.runs = n;
+            this.best = sorted[0];
+            this.median = n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+            this.mean = mean;
+            // sample variance
+            this.variance = n > 1 ? squares / (n - 1) : 0.0;
+        }
+
+        public Configuration getConfiguration() {
+            return configuration;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        public double getBest() {
+            return best;
+        }
+
+        public double getMedian() {
+            return median;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getVariance() {
+            return variance;
+        }
+
+        private String toCsv() {
+            return "summary," + configuration.toCsv() + ",,,,,,," + runs + "," + best + "," + median +
+                    "," + mean + "," + variance;
+        }
+
+        private String toJson() {
+            return "{\"record\":\"summary\"," + configuration.toJson() + ",\"runs\":" + runs +
+                    ",\"best\":" + json(best) + ",\"median\":" + json(median) + ",\"mean\":" +
+                    json(mean) + ",\"variance\":" + json(variance) + "}";
+        }
+
+        @Override
+        public String toString() {
+            return configuration + " => best " + best + ", median " + median + ", mean " + mean +
+                    ", variance " + variance + " over " + runs + " runs";
+        }
+    }
+
+    // the outcome of one run
+    private static final class Result {
+        private final int index;
+        private final Configuration configuration;
+        private final int run;
+        private final double fitness;
+        private final long evaluations;
+        private final int iterations;
+        private final double seconds;
+        private final StopReason stopReason;
+
+        private Result(int index, Configuration configuration, int run, double fitness,
+                       long evaluations, int iterations, double seconds, StopReason stopReason) {
+            this.index = index;
+            this.configuration = configuration;
+            this.run = run;
+            this.fitness = fitness;
+            this.evaluations = evaluations;
+            this.iterations = iterations;
+            this.seconds = seconds;
+            this.stopReason = stopReason;
+        }
+
+        private String toCsv() {
+            return "run," + configuration.toCsv() + "," + run + "," + fitness + "," + evaluations + "," +
+                    iterations + "," + seconds + "," + stopReason + ",,,,,";
+        }
+
+        private String toJson() {
+            return "{\"record\":\"run\"," + configuration.toJson() + ",\"run\":" + run +
+                    ",\"fitness\":" + json(fitness) + ",\"evaluations\":" + evaluations +
+                    ",\"iterations\":" + iterations + ",\"seconds\":" + seconds +
+                    ",\"stopReason\":\"" + stopReason + "\"}";
+        }
+    }
+}
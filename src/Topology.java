@@ -0,0 +1,41 @@
+/**
+ * Which islands of an IslandModel send their migrants to which.
+ */
+public enum Topology {
+
+    /** each island sends to the next, the last to the first */
+    RING {
+        @Override
+        public int[] neighbours(int island, int islands) {
+            return islands < 2 ? new int[0] : new int[] {(island + 1) % islands};
+        }
+    },
+
+    /** each island sends to both of its neighbours on a ring */
+    BIDIRECTIONAL_RING {
+        @Override
+        public int[] neighbours(int island, int islands) {
+            if (islands < 3) return RING.neighbours(island, islands);
+            return new int[] {(island + 1) % islands, (island + islands - 1) % islands};
+        }
+    },
+
+    /** each island sends to every other island */
+    FULLY_CONNECTED {
+        @Override
+        public int[] neighbours(int island, int islands) {
+            int[] neighbours = new int[Math.max(0, islands - 1)];
+            for (int i = 0, n = 0; i < islands; i++) {
+                if (i != island) neighbours[n++] = i;
+            }
+            return neighbours;
+        }
+    };
+
+    /**
+     * @param island the sending island, in [0, islands)
+     * @param islands the number of islands
+     * @return the islands which receive its migrants
+     */
+    public abstract int[] neighbours(int island, int islands);
+}
@@ -0,0 +1,199 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scores each new gBest on a held-out problem, e.g. the validation dataset,
+ * on its own thread, keeping the solution with the best validation fitness
+ * and signalling early stopping once that has not improved for a number of
+ * iterations. Attach it with BasePSO::setValidationMonitor.
+ *
+ * Only the latest snapshot is kept: one arriving while another is still
+ * waiting replaces it, so the monitor falls behind by at most one snapshot
+ * however slow validation is, and the solver never waits for it. A snapshot
+ * whose gBest fitness equals the previous one's is assumed to have the same
+ * gBest, and is not scored again. Snapshots of any run but the one the
+ * monitor was last reset for, e.g. of a previous run still being delivered,
+ * are ignored.
+ */
+public class ValidationMonitor implements ProgressListener, AutoCloseable {
+
+    private final Problem validation;
+    private final int patience;
+    private final double minImprovement;
+    private final AtomicReference<IterationSnapshot> latest = new AtomicReference<>();
+    private final AtomicLong skipped = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean closed;
+    private volatile boolean stop;
+    // the state below is guarded by this; generation counts resets, so that a
+    // snapshot being scored during a reset is discarded
+    private long generation;
+    // the run whose snapshots are scored
+    private long run;
+    private double[] best;
+    private double bestFitness = Double.NaN;
+    private int bestIteration;
+    private double improvedFitness = Double.POSITIVE_INFINITY;
+    private int improvedIteration;
+    private int lastIteration;
+    private double lastTrainingFitness = Double.NaN;
+    private long scored;
+
+    /**
+     * @param validation the problem to score gBest on
+     * @param patience the number of iterations without improvement on
+     *                 validation after which to stop
+     * @param minImprovement the smallest decrease in validation fitness which
+     *                       counts as improvement
+     */
+    public ValidationMonitor(Problem validation, int patience, double minImprovement) {
+        if (patience < 1 || minImprovement < 0) {
+            throw new IllegalArgumentException("ValidationMonitor patience must be > 0 and " +
+                    "minImprovement non-negative; they were " + patience + " and " + minImprovement);
+        }
+        this.validation = validation;
+        this.patience = patience;
+        this.minImprovement = minImprovement;
+        worker = new Thread(this::work, "validation-monitor");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void onIteration(IterationSnapshot snapshot) {
+        if (latest.getAndSet(snapshot) != null) skipped.incrementAndGet();
+        LockSupport.unpark(worker);
+    }
+
+    private void work() {
+        while (true) {
+            IterationSnapshot snapshot = latest.getAndSet(null);
+            if (snapshot != null) {
+                score(snapshot);
+            } else if (closed) {
+                return;
+            } else {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    private void score(IterationSnapshot snapshot) {
+        long scoring;
+        boolean changed;
+        synchronized (this) {
+            if (snapshot.getRun() != run) return;
+            scoring = generation;
+            changed = snapshot.getBestFitness() != lastTrainingFitness;
+        }
+        double[] solution = snapshot.getBest();
+        double fitness = changed ? validation.evaluate(solution) : Double.NaN;
+
+        synchronized (this) {
+            if (scoring != generation) return;
+            lastIteration = snapshot.getIteration();
+            lastTrainingFitness = snapshot.getBestFitness();
+            if (changed) {
+                scored++;
+                if (!(fitness >= bestFitness)) {
+                    best = solution;
+                    bestFitness = fitness;
+                    bestIteration = lastIteration;
+                }
+                if (improvedFitness - fitness > minImprovement) {
+                    improvedFitness = fitness;
+                    improvedIteration = lastIteration;
+                }
+            }
+            if (lastIteration - improvedIteration >= patience) stop = true;
+        }
+    }
+
+    /**
+     * @return true once validation fitness has not improved for patience iterations
+     */
+    public boolean shouldStop() {
+        return stop;
+    }
+
+    /**
+     * Forget everything seen so far, ready for a new run. Called by the
+     * solver at the start of each run.
+     *
+     * @param run the new run's id, as given by IterationSnapshot::getRun
+     */
+    public synchronized void reset(long run) {
+        latest.set(null);
+        generation++;
+        this.run = run;
+        stop = false;
+        best = null;
+        bestFitness = Double.NaN;
+        bestIteration = 0;
+        improvedFitness = Double.POSITIVE_INFINITY;
+        improvedIteration = 0;
+        lastIteration = 0;
+        lastTrainingFitness = Double.NaN;
+        scored = 0;
+        skipped.set(0);
+    }
+
+    /**
+     * @return a copy of the solution with the best validation fitness so far,
+     * or null before any has been scored
+     */
+    public synchronized double[] getBest() {
+        return best == null ? null : best.clone();
+    }
+
+    /**
+     * @return the validation fitness of getBest(), or NaN
+     */
+    public synchronized double getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * @return the iteration whose gBest was getBest()
+     */
+    public synchronized int getBestIteration() {
+        return bestIteration;
+    }
+
+    /**
+     * @return the number of solutions scored on validation
+     */
+    public synchronized long getScored() {
+        return scored;
+    }
+
+    /**
+     * @return the number of snapshots replaced before they could be scored
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Score the snapshot still waiting, if any, and stop the monitor's thread.
+     * If interrupted while waiting for it, returns with the interrupt status
+     * set and leaves the thread to finish by itself.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "validation best: " + bestFitness + " at iteration " + bestIteration + ", scored: " +
+                scored + ", skipped: " + skipped.get() + (stop ? ", stopped early" : "");
+    }
+}
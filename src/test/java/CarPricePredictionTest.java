@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CarPricePredictionTest {
+
+    private static final int HIDDEN_LAYER_SIZE = 2;
+    private static final int N_WEIGHTS = CarPricePrediction.N_INPUTS * HIDDEN_LAYER_SIZE + HIDDEN_LAYER_SIZE;
+    // not a multiple of the block size, so the last block is partial
+    private static final int ROWS = 1000;
+
+    private final Dataset dataset = SyntheticData.carPrices(ROWS, 42);
+
+    @Test
+    void blockedEvaluationMatchesScalarForwardPass() {
+        CarPricePrediction problem = new CarPricePrediction(dataset);
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < 100; i++) {
+            double[] params = problem.generate(random);
+            assertClose(scalarMse(params), problem.evaluate(params));
+        }
+    }
+
+    @Test
+    void batchedAndOffHeapEvaluationMatchScalarForwardPass() {
+        CarPricePrediction problem = new CarPricePrediction(dataset);
+        CarPricePrediction offHeap = new CarPricePrediction(OffHeapDataset.copyOf(dataset));
+        SplittableRandom random = new SplittableRandom(2);
+        double[][] candidates = new double[20][];
+        for (int c = 0; c < candidates.length; c++) {
+            candidates[c] = problem.generate(random);
+        }
+        int[] samples = new int[ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            samples[r] = r;
+        }
+
+        double[] batched = new double[candidates.length];
+        double[] sampled = new double[candidates.length];
+        double[] offHeapBatched = new double[candidates.length];
+        problem.evaluateBatch(candidates, batched);
+        problem.evaluateBatch(candidates, 0, candidates.length, samples, 0, ROWS, sampled);
+        offHeap.evaluateBatch(candidates, offHeapBatched);
+        for (int c = 0; c < candidates.length; c++) {
+            double expected = scalarMse(candidates[c]);
+            assertClose(expected, batched[c]);
+            assertClose(expected, sampled[c]);
+            assertClose(expected, offHeapBatched[c]);
+            assertClose(expected, offHeap.evaluate(candidates[c]));
+        }
+    }
+
+    @Test
+    void incrementalScoresMatchFullEvaluation() {
+        for (CarPricePrediction.Precision precision : CarPricePrediction.Precision.values()) {
+            CarPricePrediction problem = new CarPricePrediction(dataset, precision);
+            // the cached pre-activations are double, so SINGLE matches only up to float rounding
+            double tolerance = precision == CarPricePrediction.Precision.DOUBLE ? 1e-12 : 1e-6;
+            SplittableRandom random = new SplittableRandom(3);
+            for (int s = 0; s < 20; s++) {
+                double[] solution = problem.generate(random);
+                IncrementalProblem.Evaluation evaluation = problem.prepare(solution);
+                assertEquals(problem.evaluate(solution), evaluation.fitness(), tolerance * evaluation.fitness());
+
+                for (int c = 0; c < 20; c++) {
+                    int from = random.nextInt(problem.dimensions());
+                    // mostly single coordinates, as mutation changes, otherwise a suffix, as
+                    // one-point crossover does
+                    int to = c % 4 == 0 ? problem.dimensions() : from + 1;
+                    double[] changed = solution.clone();
+                    for (int i = from; i < to; i++) {
+                        changed[i] = random.nextDouble(-10.0, 10.0);
+                    }
+                    double expected = problem.evaluate(changed);
+                    assertEquals(expected, evaluation.evaluateChange(changed, from, to),
+                            tolerance * expected);
+                    if (to == from + 1) {
+                        assertEquals(expected - evaluation.fitness(), evaluation.delta(from, changed[from]),
+                                tolerance * expected);
+                    }
+                    double cost = problem.changeCost(from, to);
+                    assertTrue(cost > 0.0 && cost <= 1.0);
+                }
+                evaluation.release();
+                assertThrows(IllegalStateException.class, () -> evaluation.delta(0, 0.0));
+            }
+        }
+    }
+
+    // the mean squared error computed one row at a time, as before the blocked pass
+    private double scalarMse(double[] params) {
+        double[] features = dataset.features();
+        double[] input = new double[CarPricePrediction.N_INPUTS];
+        double mse = 0.0;
+        for (int r = 0; r < ROWS; r++) {
+            for (int j = 0; j < input.length; j++) {
+                input[j] = features[j * ROWS + r];
+            }
+            double error = dataset.targets()[r] - predict(input, params);
+            mse += error * error;
+        }
+        return mse / ROWS;
+    }
+
+    private static double predict(double[] input, double[] params) {
+        int weightPos = 0;
+        int biasPos = N_WEIGHTS;
+        double[] hiddenLayerValues = new double[HIDDEN_LAYER_SIZE];
+        for (int i = 0; i < HIDDEN_LAYER_SIZE; i++) {
+            double weightedSum = params[biasPos];
+            biasPos++;
+            for (int j = 0; j < input.length; j++) {
+                weightedSum += input[j] * params[weightPos];
+                weightPos++;
+            }
+            hiddenLayerValues[i] = Math.max(0.0, weightedSum);
+        }
+        double output = params[biasPos];
+        for (int i = 0; i < HIDDEN_LAYER_SIZE; i++) {
+            output += hiddenLayerValues[i] * params[weightPos];
+            weightPos++;
+        }
+        return output;
+    }
+
+    private static void assertClose(double expected, double actual) {
+        assertEquals(expected, actual, 1e-12 * Math.abs(expected));
+    }
+}
@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckpointTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeThenReadRestoresEveryField() throws IOException {
+        SplittableRandom random = new SplittableRandom(5);
+        double[] history = random.doubles(30).toArray();
+        Checkpoint written = new Checkpoint(7, 4, 30, 3, 1234, 567, 89, random.nextLong(), 0.25, 0.125,
+                history);
+        fill(written.gBest, random);
+        fill(written.positions, random);
+        fill(written.velocities, random);
+        fill(written.pBests, random);
+        fill(written.pBestFitness, random);
+        written.pBestFitness[2] = Double.NaN;
+        written.aliases[0] = 0;
+        written.aliases[1] = 1;
+        written.aliases[2] = 1;
+        written.aliases[3] = 3;
+        Path file = directory.resolve("state.ckpt");
+        written.write(file);
+        assertFalse(Files.exists(directory.resolve("state.ckpt.tmp")));
+
+        Checkpoint read = Checkpoint.read(file);
+        assertEquals(written.dimensions, read.dimensions);
+        assertEquals(written.size, read.size);
+        assertEquals(written.iterations, read.iterations);
+        assertEquals(written.stagnantIterations, read.stagnantIterations);
+        assertEquals(written.evaluations, read.evaluations);
+        assertEquals(written.runEvaluations, read.runEvaluations);
+        assertEquals(written.elapsedNanos, read.elapsedNanos);
+        assertEquals(written.randomSeed, read.randomSeed);
+        assertEquals(written.stagnationBest, read.stagnationBest);
+        assertEquals(written.gBestFitness, read.gBestFitness);
+        assertArrayEquals(written.gBest, read.gBest);
+        assertArrayEquals(written.positions, read.positions);
+        assertArrayEquals(written.velocities, read.velocities);
+        assertArrayEquals(written.pBests, read.pBests);
+        assertArrayEquals(written.pBestFitness, read.pBestFitness);
+        assertArrayEquals(written.history, read.history);
+        assertArrayEquals(written.aliases, read.aliases);
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Checkpoint written = new Checkpoint(3, 2, 1, 0, 10, 10, 1, 1, 1.0, 1.0, new double[1]);
+        written.aliases[1] = 1;
+        Path file = directory.resolve("state.ckpt");
+        written.write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> Checkpoint.read(file));
+    }
+
+    @Test
+    void resumedBasePSORunIsIdenticalToUninterruptedRun() throws IOException {
+        assertResumeIsIdentical(BasePSO::new);
+    }
+
+    @Test
+    void resumedFlatBasePSORunIsIdenticalToUninterruptedRun() throws IOException {
+        assertResumeIsIdentical(problem -> {
+            BasePSO solver = new BasePSO(problem);
+            solver.setFlatStorage(true);
+            return solver;
+        });
+    }
+
+    @Test
+    void resumedNovelPSORunIsIdenticalToUninterruptedRun() throws IOException {
+        assertResumeIsIdentical(problem -> {
+            NovelPSO solver = new NovelPSO(problem);
+            solver.setEvaluateOffspring(true);
+            return solver;
+        });
+    }
+
+    // a run checkpointed every iteration and stopped half way, then resumed by a new
+    // solver, against a run of the same seed which was never stopped
+    private void assertResumeIsIdentical(Function<Problem, BasePSO> solvers) throws IOException {
+        Problem problem = new CarPricePrediction(SyntheticData.carPrices(300, 11));
+        BasePSO uninterrupted = configure(solvers.apply(problem), 40, directory.resolve("full.ckpt"));
+        uninterrupted.solve();
+
+        Path file = directory.resolve("partial.ckpt");
+        configure(solvers.apply(problem), 20, file).solve();
+        BasePSO resumed = configure(solvers.apply(problem), 40, file);
+        resumed.resume(file);
+
+        assertEquals(uninterrupted.getIterations(), resumed.getIterations());
+        assertEquals(uninterrupted.getEvaluationCount(), resumed.getEvaluationCount());
+        assertEquals(uninterrupted.getBestFitness(), resumed.getBestFitness());
+        assertArrayEquals(uninterrupted.getBest(), resumed.getBest());
+        assertArrayEquals(uninterrupted.getMetrics().getHistory(), resumed.getMetrics().getHistory());
+    }
+
+    private static BasePSO configure(BasePSO solver, int runTime, Path checkpoint) {
+        solver.setSeed(17);
+        solver.setPopulationSize(12);
+        solver.setRunTime(runTime);
+        solver.setCheckpoint(checkpoint, Duration.ZERO);
+        return solver;
+    }
+
+    private static void fill(double[] values, SplittableRandom random) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble(-10.0, 10.0);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DatasetTest {
+
+    @Test
+    void parserMatchesDoubleParseDoubleOnEdgeCases() {
+        String[] numbers = {
+                "0", "-0", "+0", "0.0", "-0.0", "1", "-1", "+1.5", ".5", "5.", "007", "0.000",
+                "1e0", "1E5", "1e-5", "1e+5", "-2.5e-3", "123456789012345678", "1234567890123456789",
+                "12345678901234567890", "0.1234567890123456789012", "00000000000000000000001",
+                "9007199254740993", "9007199254740992.5", "2.2250738585072011e-308",
+                "2.2250738585072014e-308", "4.9e-324", "1e-400", "1.7976931348623157e308",
+                "1.7976931348623159e308", "1e309", "1e-342", "1e308", "3.0000000000000004",
+                "0.30000000000000004", "1e23", "8.41e21", "5e-324", "1e100000", "1e-100000"
+        };
+        for (String number : numbers) {
+            assertParses(number);
+        }
+    }
+
+    @Test
+    void parserMatchesDoubleParseDoubleOnRandomNumbers() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 200_000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(value) || Double.isInfinite(value)) continue;
+            assertParses(Double.toString(value));
+            assertParses(String.format("%.6f", random.nextDouble(-1e6, 1e6)));
+            assertParses(randomDecimal(random));
+        }
+    }
+
+    @Test
+    void csvAndCacheRoundTrip(@TempDir Path directory) throws IOException {
+        Dataset dataset = SyntheticData.carPrices(500, 3);
+        Path csv = directory.resolve("data.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            for (int r = 0; r < dataset.rows(); r++) {
+                for (int j = 0; j < dataset.inputs(); j++) {
+                    writer.write(Double.toString(dataset.features()[j * dataset.rows() + r]));
+                    writer.write(',');
+                }
+                writer.write(Double.toString(dataset.targets()[r]));
+                writer.write(r % 2 == 0 ? "\r\n" : "\n");
+            }
+        }
+
+        Dataset read = Dataset.readCsv(csv);
+        assertEquals(dataset.rows(), read.rows());
+        assertEquals(dataset.inputs(), read.inputs());
+        assertArrayEquals(dataset.features(), read.features());
+        assertArrayEquals(dataset.targets(), read.targets());
+
+        Path cache = directory.resolve("data.bin");
+        read.writeCache(cache);
+        Dataset cached = Dataset.readCache(cache);
+        assertArrayEquals(dataset.features(), cached.features());
+        assertArrayEquals(dataset.targets(), cached.targets());
+    }
+
+    // up to 25 random digits, with a random decimal point and exponent
+    private static String randomDecimal(SplittableRandom random) {
+        StringBuilder number = new StringBuilder();
+        if (random.nextBoolean()) number.append('-');
+        int digits = 1 + random.nextInt(25);
+        int point = random.nextInt(digits + 1);
+        for (int d = 0; d < digits; d++) {
+            if (d == point) number.append('.');
+            number.append((char) ('0' + random.nextInt(10)));
+        }
+        if (random.nextBoolean()) number.append('e').append(random.nextInt(-360, 330));
+        return number.toString();
+    }
+
+    private static void assertParses(String number) {
+        byte[] bytes = ("," + number + ",").getBytes(StandardCharsets.ISO_8859_1);
+        double parsed = Dataset.NumberParser.parseDouble(bytes, 1, bytes.length - 1);
+        assertEquals(Double.doubleToRawLongBits(Double.parseDouble(number)),
+                Double.doubleToRawLongBits(parsed), number);
+    }
+}
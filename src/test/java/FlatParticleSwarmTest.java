@@ -0,0 +1,48 @@
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlatParticleSwarmTest {
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void steadyStateIterationsAllocateNothing() {
+        BasePSO solver = new BasePSO(new Sphere(47));
+        solver.setPopulationSize(1000);
+        BasePSO.FlatParticleSwarm swarm = solver.new FlatParticleSwarm();
+        for (int i = 0; i < 50; i++) {
+            iterate(swarm);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 50; i++) {
+            iterate(swarm);
+        }
+        long allocated = THREADS.getThreadAllocatedBytes(thread) - before;
+        assertEquals(0, allocated, "bytes allocated by 50 iterations");
+    }
+
+    @Test
+    void iterationsImproveGBest() {
+        BasePSO solver = new BasePSO(new Sphere(10));
+        solver.setPopulationSize(50);
+        BasePSO.FlatParticleSwarm swarm = solver.new FlatParticleSwarm();
+        iterate(swarm);
+        double initial = swarm.getGBestFitness();
+        for (int i = 0; i < 200; i++) {
+            iterate(swarm);
+        }
+        assertTrue(swarm.getGBestFitness() < initial);
+    }
+
+    private static void iterate(BasePSO.Swarm swarm) {
+        swarm.updatePopulation();
+        swarm.evaluatePopulation();
+    }
+}
@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobServerTest {
+
+    private static final Duration POLL = Duration.ofMillis(10);
+
+    @TempDir
+    Path directory;
+
+    private Path data;
+    private JobServer server;
+    private JobClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        data = Files.createDirectory(directory.resolve("data"));
+        SyntheticData.writeCsv(SyntheticData.carPrices(200, 1), data.resolve("train.csv"));
+        server = new JobServer(0, 1, data);
+        server.start();
+        client = new JobClient(server.getPort());
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    @Test
+    void submittedJobRunsToCompletion() throws Exception {
+        long id = client.submit(Map.of("dataset", "train", "runTime", "20", "populationSize", "10",
+                "seed", "3"));
+        String status = client.await(id, POLL);
+        assertEquals("SUCCEEDED", JobClient.field(status, "state"));
+        assertEquals("20", JobClient.field(status, "iteration"));
+        assertTrue(Double.isFinite(Double.parseDouble(JobClient.field(status, "bestFitness"))));
+        assertTrue(status.contains("\"best\":["));
+    }
+
+    @Test
+    void cancelStopsRunningAndQueuedJobs() throws Exception {
+        Map<String, String> endless = Map.of("dataset", "train", "runTime", "100000000",
+                "populationSize", "10");
+        long running = client.submit(endless);
+        long queued = client.submit(endless);
+
+        // progress is reported while the only slot is taken
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        String status = client.status(running);
+        while (!"RUNNING".equals(JobClient.field(status, "state"))
+                || "0".equals(JobClient.field(status, "iteration"))) {
+            assertTrue(System.nanoTime() < deadline, status);
+            Thread.sleep(POLL.toMillis());
+            status = client.status(running);
+        }
+        assertNotNull(JobClient.field(status, "bestFitness"));
+        assertEquals("QUEUED", JobClient.field(client.status(queued), "state"));
+
+        assertEquals("CANCELLED", JobClient.field(client.cancel(queued), "state"));
+        client.cancel(running);
+        status = client.await(running, POLL);
+        assertEquals("CANCELLED", JobClient.field(status, "state"));
+        assertEquals("CANCELLED", JobClient.field(status, "stopReason"));
+        assertEquals("CANCELLED", JobClient.field(client.status(queued), "state"));
+    }
+
+    @Test
+    void datasetsOutsideTheDataDirectoryAreRejected() throws Exception {
+        Path outside = directory.resolve("outside.csv");
+        SyntheticData.writeCsv(SyntheticData.carPrices(20, 2), outside);
+
+        for (String dataset : new String[] {"../outside.csv", outside.toString()}) {
+            IOException e = assertThrows(IOException.class,
+                    () -> client.submit(Map.of("dataset", dataset)));
+            assertTrue(e.getMessage().startsWith("JobClient 400"), e.getMessage());
+        }
+    }
+
+    @Test
+    void datasetCacheIsBounded() throws Exception {
+        for (int i = 0; i <= JobServer.DATASET_CACHE_SIZE; i++) {
+            SyntheticData.writeCsv(SyntheticData.carPrices(20, i), data.resolve(i + ".csv"));
+            client.submit(Map.of("dataset", i + ".csv", "runTime", "1"));
+        }
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/datasets"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        int loaded = response.body().split("\"path\"", -1).length - 1;
+        assertEquals(JobServer.DATASET_CACHE_SIZE, loaded, response.body());
+        assertFalse(response.body().contains("0.csv\""), response.body());
+    }
+}
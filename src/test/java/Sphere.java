@@ -0,0 +1,66 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * The sum of squares over [-10, 10]^dimensions, a cheap problem which
+ * allocates nothing to evaluate.
+ */
+class Sphere implements Problem {
+
+    private final int dimensions;
+    private final Bounds limits;
+
+    Sphere(int dimensions) {
+        this.dimensions = dimensions;
+        limits = Bounds.of(bounds());
+    }
+
+    @Override
+    public double[][] bounds() {
+        double[][] bounds = new double[dimensions][];
+        for (int i = 0; i < dimensions; i++) {
+            bounds[i] = new double[] {-10.0, 10.0};
+        }
+        return bounds;
+    }
+
+    @Override
+    public Bounds limits() {
+        return limits;
+    }
+
+    @Override
+    public boolean validates(double[] params) {
+        for (double param : params) {
+            if (param < -10.0 || param > 10.0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public double evaluate(double[] params) {
+        double sum = 0.0;
+        for (double param : params) {
+            sum += param * param;
+        }
+        return sum;
+    }
+
+    @Override
+    public double[] generate() {
+        return generate(PSOData.RANDOM);
+    }
+
+    @Override
+    public double[] generate(RandomGenerator random) {
+        double[] candidate = new double[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            candidate[i] = random.nextDouble(-10.0, 10.0);
+        }
+        return candidate;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+}
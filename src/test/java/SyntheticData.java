@@ -0,0 +1,45 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Reproducible synthetic datasets shaped like the car price data:
+ * standardised inputs and a noisy target.
+ */
+final class SyntheticData {
+
+    private SyntheticData() {
+    }
+
+    static Dataset carPrices(int rows, long seed) {
+        Random random = new Random(seed);
+        int inputs = CarPricePrediction.N_INPUTS;
+        double[] features = new double[rows * inputs];
+        double[] targets = new double[rows];
+        for (int r = 0; r < rows; r++) {
+            double target = 9.0;
+            for (int j = 0; j < inputs; j++) {
+                double value = random.nextGaussian();
+                features[j * rows + r] = value;
+                target += 0.1 * value * ((j % 3) - 1);
+            }
+            targets[r] = target + 0.05 * random.nextGaussian();
+        }
+        return new Dataset(rows, inputs, features, targets);
+    }
+
+    static void writeCsv(Dataset dataset, Path csv) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            for (int r = 0; r < dataset.rows(); r++) {
+                for (int j = 0; j < dataset.inputs(); j++) {
+                    writer.write(Double.toString(dataset.features()[j * dataset.rows() + r]));
+                    writer.write(',');
+                }
+                writer.write(Double.toString(dataset.targets()[r]));
+                writer.write('\n');
+            }
+        }
+    }
+}